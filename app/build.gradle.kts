@@ -32,17 +32,27 @@ android {
         targetCompatibility = JavaVersion.VERSION_1_8
     }
 
+    testOptions {
+        // Las pruebas locales usan android.util.Log y otros métodos del SDK sin dispositivo
+        unitTests.isReturnDefaultValues = true
+    }
+
     androidResources {
         noCompress += listOf("tflite", "lite")
     }
 }
 
 dependencies {
+    // Empaquetado de píxeles y postprocesado, compartido con los benchmarks JMH
+    implementation(project(":vision-core"))
+
     // Dependencias principales de Android
     implementation("androidx.appcompat:appcompat:1.6.1")
     implementation("com.google.android.material:material:1.11.0")
     implementation("androidx.constraintlayout:constraintlayout:2.1.4")
     implementation("androidx.activity:activity:1.8.2")
+    // Estado del escaneo que sobrevive a la rotación
+    implementation("androidx.lifecycle:lifecycle-viewmodel:2.6.2")
 
     implementation ("androidx.core:core-ktx:1.12.0")
     implementation ("com.google.android.material:material:1.11.0")
@@ -52,11 +62,21 @@ dependencies {
     implementation ("org.tensorflow:tensorflow-lite-support:0.4.4")
     implementation("org.tensorflow:tensorflow-lite-gpu:2.14.0") // Opcional para aceleración GPU
 
+    // CameraX para el modo de clasificación en vivo
+    implementation ("androidx.camera:camera-core:1.3.4")
+    implementation ("androidx.camera:camera-camera2:1.3.4")
+    implementation ("androidx.camera:camera-lifecycle:1.3.4")
+    implementation ("androidx.camera:camera-view:1.3.4")
+
     implementation ("com.squareup.retrofit2:retrofit:2.9.0")
     implementation ("com.squareup.retrofit2:converter-gson:2.9.0")
 
+    // Sesión en almacenamiento cifrado
+    implementation ("androidx.security:security-crypto:1.0.0")
+
     // Testing
     testImplementation("junit:junit:4.13.2")
+    testImplementation("com.squareup.okhttp3:mockwebserver:3.14.9")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.example.ecovision;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import com.example.ecovision.core.ThrottlePolicy;
+
+import java.util.Locale;
+
+// Ajusta ritmo de inferencia, hilos del intérprete y resolución del análisis en vivo para mantener
+// la latencia dentro del presupuesto sin calentar el equipo. Mide la latencia de cada invocación,
+// escucha el estado térmico y el ahorro de batería, y registra cada decisión en el log.
+public class AdaptiveScheduler {
+
+    public interface Listener {
+        // En el hilo principal, solo cuando cambia el nivel o el tope de hilos
+        void onSettingsChanged(Settings settings);
+    }
+
+    // Lo que permite el nivel (ritmo y resolución) y el piso térmico o de batería (hilos);
+    // se aplica en el analizador en vivo, el lote y ModelHolder
+    public static class Settings {
+        private final int level;
+        private final long minIntervalMs;
+        private final int maxThreads;
+        private final Size analysisSize;
+
+        Settings(int level, long minIntervalMs, int maxThreads, Size analysisSize) {
+            this.level = level;
+            this.minIntervalMs = minIntervalMs;
+            this.maxThreads = maxThreads;
+            this.analysisSize = analysisSize;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        // Separación mínima entre inferencias en vivo o entre lotes; 0 sin límite
+        public long getMinIntervalMs() {
+            return minIntervalMs;
+        }
+
+        // Tope de hilos del intérprete; 0 usa lo que midió DelegateTuner
+        public int getMaxThreads() {
+            return maxThreads;
+        }
+
+        public Size getAnalysisSize() {
+            return analysisSize;
+        }
+
+        @Override
+        public String toString() {
+            return (minIntervalMs == 0 ? "sin pausa" : "cada " + minIntervalMs + " ms") + ", "
+                    + (maxThreads == 0 ? "hilos ajustados" : maxThreads + " hilos") + ", análisis "
+                    + analysisSize.getWidth() + "x" + analysisSize.getHeight();
+        }
+    }
+
+    private static final String TAG = "AdaptiveScheduler";
+    // Presupuesto por invocación del modelo; en equipos medios MobileNet ronda 30-60 ms
+    private static final float LATENCY_BUDGET_MS = 80f;
+    private static final float LATENCY_ALPHA = 0.2f;
+    private static final long HOLD_MS = 10_000;
+
+    // Por nivel: separación entre inferencias y resolución del análisis en vivo
+    private static final long[] MIN_INTERVALS_MS = {0, 200, 1000};
+    private static final Size[] ANALYSIS_SIZES = {new Size(640, 480), new Size(480, 360), new Size(320, 240)};
+
+    private final Context context;
+    private final PowerManager powerManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+    // Protegida por this: la latencia llega desde el hilo de inferencia y el resto desde el principal
+    private final ThrottlePolicy policy = new ThrottlePolicy(LATENCY_BUDGET_MS, LATENCY_ALPHA, HOLD_MS);
+    private volatile Settings settings = settingsFor(ThrottlePolicy.LEVEL_FULL, 0);
+    // Último frame en vivo analizado; solo desde el hilo de inferencia
+    private long lastFrameMs;
+    private boolean started;
+
+    private final PowerManager.OnThermalStatusChangedListener thermalListener = status -> {
+        synchronized (this) {
+            policy.setThermalStatus(status);
+        }
+        evaluate();
+    };
+
+    private final BroadcastReceiver powerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            synchronized (AdaptiveScheduler.this) {
+                policy.setPowerSave(powerManager.isPowerSaveMode());
+            }
+            evaluate();
+        }
+    };
+
+    public AdaptiveScheduler(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.powerManager = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+        this.listener = listener;
+    }
+
+    // Desde el hilo principal
+    public void start() {
+        if (started || powerManager == null) return;
+        started = true;
+        synchronized (this) {
+            policy.setThermalStatus(powerManager.getCurrentThermalStatus());
+            policy.setPowerSave(powerManager.isPowerSaveMode());
+        }
+        powerManager.addThermalStatusListener(context.getMainExecutor(), thermalListener);
+        context.registerReceiver(powerSaveReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        evaluate();
+    }
+
+    public void stop() {
+        if (!started) return;
+        started = false;
+        powerManager.removeThermalStatusListener(thermalListener);
+        context.unregisterReceiver(powerSaveReceiver);
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    // Desde el hilo de inferencia, con el tiempo de una invocación (o de una imagen en un lote)
+    public void recordLatency(long latencyMs) {
+        synchronized (this) {
+            policy.recordLatency(latencyMs);
+        }
+        evaluate();
+    }
+
+    // Para el analizador en vivo: false si el frame llega antes de la separación mínima y se descarta
+    public boolean shouldAnalyzeFrame() {
+        long interval = settings.getMinIntervalMs();
+        long now = SystemClock.uptimeMillis();
+        if (interval > 0 && now - lastFrameMs < interval) {
+            return false;
+        }
+        lastFrameMs = now;
+        return true;
+    }
+
+    private void evaluate() {
+        Settings previous;
+        Settings next;
+        String decision;
+        synchronized (this) {
+            previous = settings;
+            // Un cambio de nivel descarta la media; se registra la que motivó la decisión
+            float latencyEmaMs = policy.getLatencyEmaMs();
+            int level = policy.evaluate(SystemClock.uptimeMillis());
+            int maxThreads = policy.getMaxThreads();
+            if (level == previous.getLevel() && maxThreads == previous.getMaxThreads()) return;
+            next = settingsFor(level, maxThreads);
+            settings = next;
+            decision = String.format(Locale.US, "Nivel %d -> %d (%s) | latencia media %.0f ms de %.0f | térmico %d"
+                            + " | ahorro %s -> %s", previous.getLevel(), level, policy.getReason(),
+                    latencyEmaMs, policy.getBudgetMs(), policy.getThermalStatus(),
+                    policy.isPowerSave() ? "sí" : "no", next);
+        }
+        Log.i(TAG, decision);
+        mainHandler.post(() -> listener.onSettingsChanged(next));
+    }
+
+    private static Settings settingsFor(int level, int maxThreads) {
+        return new Settings(level, MIN_INTERVALS_MS[level], maxThreads, ANALYSIS_SIZES[level]);
+    }
+}
@@ -7,7 +7,7 @@ import retrofit2.http.POST;
 
 public interface ApiService {
 
-    @Headers("Content-Type: application/json")
-    @POST("api/Cliente") // Agrega aquí la ruta de tu API
+    @Headers("Accept: application/json")
+    @POST("api/Cliente/CrearCliente/")
     Call<Void> CrearCliente(@Body UsuarioModel usuario);
 }
@@ -1,12 +1,23 @@
 package com.example.ecovision;
 
+import com.google.gson.JsonElement;
+
 import retrofit2.Call;
 import retrofit2.http.Body;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Headers;
 import retrofit2.http.POST;
 
 public interface ApiServiceLogin {
-    @Headers("Content-Type: application/json")
-    @POST("api/usuarios") // Agrega aquí la ruta de tu API
-    Call<Void> Login(@Body loginModel login);
+    // El backend responde "null" cuando las credenciales no son válidas.
+    // Solo valida, no modifica nada: se puede reintentar aunque sea POST.
+    @Headers({"Accept: application/json", RetryInterceptor.IDEMPOTENT_HEADER + ": true"})
+    @POST("api/Usuarios/ValidarLogin")
+    Call<JsonElement> Login(@Body loginModel login);
+
+    // Revalida en segundo plano el token de una sesión guardada; 401/403 o "null" si ya no es válido
+    @Headers("Accept: application/json")
+    @GET("api/Usuarios/ValidarToken")
+    Call<JsonElement> ValidarToken(@Header("Authorization") String authorization);
 }
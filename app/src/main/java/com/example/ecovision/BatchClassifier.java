@@ -0,0 +1,245 @@
+package com.example.ecovision;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.ecovision.core.ScorePostprocessor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+public class BatchClassifier {
+
+    public interface Listener {
+        void onProgress(int processed, int total);
+
+        void onFinished(Result result);
+    }
+
+    public static class Result {
+        private final int[] countsPerClass;
+        private final int notSure;
+        private final int failed;
+        private final long elapsedMs;
+        private final boolean complete;
+
+        Result(int[] countsPerClass, int notSure, int failed, long elapsedMs, boolean complete) {
+            this.countsPerClass = countsPerClass;
+            this.notSure = notSure;
+            this.failed = failed;
+            this.elapsedMs = elapsedMs;
+            this.complete = complete;
+        }
+
+        public int[] getCountsPerClass() {
+            return countsPerClass;
+        }
+
+        // Imágenes sin ninguna clase con la confianza mínima; no cuentan como ningún material
+        public int getNotSure() {
+            return notSure;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        // Procesadas con éxito, dudosas incluidas
+        public int getClassified() {
+            int total = notSure;
+            for (int count : countsPerClass) total += count;
+            return total;
+        }
+
+        // false si se canceló o un cambio de modelo lo detuvo antes de la última imagen
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public float getImagesPerSecond() {
+            return elapsedMs == 0 ? 0f : getClassified() * 1000f / elapsedMs;
+        }
+    }
+
+    private static final String TAG = "BatchClassifier";
+    private static final int BATCH_SIZE = 8;
+
+    private final ContentResolver contentResolver;
+    private final InferenceExecutor inferenceExecutor;
+    private final ModelSpec modelSpec;
+
+    // Decodificación en paralelo acotada; la coordinación va en su propio hilo para no bloquear la inferencia
+    private final ExecutorService decodePool;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "ecovision-lote"));
+
+    // Un preprocesador por hilo de decodificación; cada uno escribe en su propia franja del lote
+    private final ThreadLocal<ImagePreprocessor> preprocessors;
+
+    private final BatchRunner batchRunner;
+    // Misma regla de confianza mínima que un escaneo suelto; solo se usa en el hilo coordinador
+    private final ScorePostprocessor postprocessor;
+
+    private volatile boolean cancelled;
+
+    public BatchClassifier(Context context, InferenceExecutor inferenceExecutor, float minConfidence) {
+        this.contentResolver = context.getApplicationContext().getContentResolver();
+        this.inferenceExecutor = inferenceExecutor;
+        this.modelSpec = inferenceExecutor.getModelSpec();
+        this.batchRunner = new BatchRunner(inferenceExecutor);
+        this.postprocessor = new ScorePostprocessor(minConfidence);
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        this.decodePool = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "ecovision-decodificacion"));
+        this.preprocessors = new ThreadLocal<ImagePreprocessor>() {
+            @Override
+            protected ImagePreprocessor initialValue() {
+                return new ImagePreprocessor(modelSpec);
+            }
+        };
+    }
+
+    public void classify(List<Uri> uris, Listener listener) {
+        cancelled = false;
+        coordinator.execute(() -> run(uris, listener));
+    }
+
+    private void run(List<Uri> uris, Listener listener) {
+        long start = SystemClock.elapsedRealtime();
+        int[] counts = new int[modelSpec.getNumClasses()];
+        int notSure = 0;
+        int failed = 0;
+        int processed = 0;
+
+        int bytesPerImage = modelSpec.getInputSize() * modelSpec.getInputSize() * 3
+                * (modelSpec.isFloatInput() ? 4 : 1);
+        int batchSize = BATCH_SIZE;
+        ByteBuffer batchBuffer = ByteBuffer.allocateDirect(bytesPerImage * batchSize);
+        batchBuffer.order(ByteOrder.nativeOrder());
+
+        for (int offset = 0; offset < uris.size() && !cancelled; offset += batchSize) {
+            List<Uri> chunk = uris.subList(offset, Math.min(offset + batchSize, uris.size()));
+            if (offset > 0 && !pauseBetweenChunks()) break;
+
+            // Decodifica y empaqueta cada imagen en paralelo directamente en su franja del lote
+            List<Future<Boolean>> decodes = new ArrayList<>();
+            try {
+                for (int slot = 0; slot < chunk.size(); slot++) {
+                    Uri uri = chunk.get(slot);
+                    int slotOffset = slot * bytesPerImage;
+                    decodes.add(decodePool.submit(() -> decodeInto(uri, batchBuffer, slotOffset)));
+                }
+            } catch (RejectedExecutionException e) {
+                // shutdown() durante el lote (cambio de modelo o fin de la pantalla): se informa lo hecho
+                Log.w(TAG, "Lote detenido tras " + processed + " de " + uris.size() + " imágenes");
+                for (Future<Boolean> decode : decodes) {
+                    decode.cancel(true);
+                }
+                break;
+            }
+
+            // Las imágenes que no se pudieron decodificar se compactan fuera del lote
+            int valid = 0;
+            for (int slot = 0; slot < decodes.size(); slot++) {
+                boolean ok;
+                try {
+                    ok = decodes.get(slot).get();
+                } catch (Exception e) {
+                    Log.w(TAG, "Error decodificando " + chunk.get(slot), e);
+                    ok = false;
+                }
+                if (!ok) {
+                    failed++;
+                } else {
+                    if (valid != slot) {
+                        moveSlot(batchBuffer, slot, valid, bytesPerImage);
+                    }
+                    valid++;
+                }
+            }
+
+            if (valid > 0) {
+                try {
+                    for (float[] imageScores : batchRunner.run(batchBuffer, valid, bytesPerImage)) {
+                        int verdict = postprocessor.decide(imageScores);
+                        if (verdict == ScorePostprocessor.NOT_SURE) {
+                            notSure++;
+                        } else {
+                            counts[verdict]++;
+                        }
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error en inferencia por lotes", e);
+                    failed += valid;
+                }
+            }
+
+            processed += chunk.size();
+            int progress = processed;
+            inferenceExecutor.postToMain(() -> listener.onProgress(progress, uris.size()));
+        }
+
+        long elapsedMs = SystemClock.elapsedRealtime() - start;
+        // Siempre se publica un resultado: la pantalla no puede quedarse en "Clasificando..."
+        Result result = new Result(counts, notSure, failed, elapsedMs, processed == uris.size());
+        Log.i(TAG, "Lote terminado: " + result.getClassified() + " imágenes en " + elapsedMs
+                + " ms (" + result.getImagesPerSecond() + " img/s), dudosas: " + notSure + ", fallidas: " + failed);
+        inferenceExecutor.postToMain(() -> listener.onFinished(result));
+    }
+
+    // Pausa que pide el planificador adaptativo entre lotes; false si se interrumpió el hilo
+    private boolean pauseBetweenChunks() {
+        AdaptiveScheduler scheduler = inferenceExecutor.getScheduler();
+        long pauseMs = scheduler != null ? scheduler.getSettings().getMinIntervalMs() : 0;
+        if (pauseMs == 0) return true;
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean decodeInto(Uri uri, ByteBuffer batchBuffer, int slotOffset) throws Exception {
+        Bitmap bitmap = CaptureDecoder.decodeSampled(contentResolver, uri, modelSpec.getInputSize());
+        if (bitmap == null) return false;
+        try {
+            ByteBuffer packed = preprocessors.get().process(bitmap);
+            ByteBuffer slot = batchBuffer.duplicate();
+            slot.position(slotOffset);
+            slot.put(packed);
+            return true;
+        } finally {
+            BitmapPool.getInstance().put(bitmap);
+        }
+    }
+
+    private static void moveSlot(ByteBuffer batchBuffer, int from, int to, int bytesPerImage) {
+        ByteBuffer source = batchBuffer.duplicate();
+        source.position(from * bytesPerImage).limit((from + 1) * bytesPerImage);
+        ByteBuffer target = batchBuffer.duplicate();
+        target.position(to * bytesPerImage);
+        target.put(source);
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public void shutdown() {
+        cancel();
+        coordinator.shutdown();
+        decodePool.shutdown();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.ecovision;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Ejecuta varias imágenes ya empaquetadas en una sola inferencia; si el modelo no admite
+// redimensionar la dimensión de lote, pasa a procesarlas de una en una
+class BatchRunner {
+
+    private static final String TAG = "BatchRunner";
+
+    private final InferenceExecutor inferenceExecutor;
+    // Se desactiva si el modelo no admite redimensionar la dimensión de lote
+    private boolean batchingSupported = true;
+
+    BatchRunner(InferenceExecutor inferenceExecutor) {
+        this.inferenceExecutor = inferenceExecutor;
+    }
+
+    // Bloquea hasta tener los resultados; no llamar desde el hilo de inferencia
+    float[][] run(ByteBuffer batchBuffer, int count, int bytesPerImage) throws Exception {
+        if (batchingSupported) {
+            try {
+                ByteBuffer input = slice(batchBuffer, 0, count * bytesPerImage);
+                return inferenceExecutor.callOnWorker(
+                        () -> inferenceExecutor.runBatchOnWorker(input, count)).get();
+            } catch (Exception e) {
+                Log.w(TAG, "El modelo no admite lotes de " + count + ", se procesa imagen por imagen", e);
+                batchingSupported = false;
+            }
+        }
+
+        float[][] scores = new float[count][];
+        for (int i = 0; i < count; i++) {
+            ByteBuffer input = slice(batchBuffer, i * bytesPerImage, bytesPerImage);
+            scores[i] = inferenceExecutor.callOnWorker(
+                    () -> inferenceExecutor.runBatchOnWorker(input, 1)).get()[0];
+        }
+        return scores;
+    }
+
+    // El intérprete exige un buffer del tamaño exacto del tensor
+    static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+}
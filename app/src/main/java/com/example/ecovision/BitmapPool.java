@@ -0,0 +1,149 @@
+package com.example.ecovision;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+
+// Bitmaps mutables ya asignados, agrupados por tamaño en potencias de 2 de bytes.
+// Se reutilizan como inBitmap al decodificar y como destino al girar o reducir, para no
+// asignar y soltar un bitmap nuevo en cada escaneo.
+public class BitmapPool {
+
+    private static final String TAG = "BitmapPool";
+    // Tope absoluto; en equipos con poca memoria se usa una fracción del heap
+    private static final long MAX_BUDGET_BYTES = 16L * 1024 * 1024;
+
+    private static BitmapPool instance;
+
+    private final long budgetBytes;
+    // Cubeta -> bitmaps libres; la cubeta k guarda asignaciones de (2^(k-1), 2^k] bytes
+    private final Map<Integer, ArrayDeque<Bitmap>> buckets = new HashMap<>();
+    // Orden de llegada de todos los libres: se desalojan primero los más antiguos
+    private final LinkedHashSet<Bitmap> arrivalOrder = new LinkedHashSet<>();
+    private long pooledBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public static synchronized BitmapPool getInstance() {
+        if (instance == null) {
+            instance = new BitmapPool(Math.min(MAX_BUDGET_BYTES, Runtime.getRuntime().maxMemory() / 16));
+        }
+        return instance;
+    }
+
+    BitmapPool(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    // Devuelve un bitmap mutable del tamaño pedido; su contenido es indefinido.
+    // Busca en la cubeta justa y en la siguiente para no entregar uno mucho mayor.
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        int needed = width * height * bytesPerPixel(config);
+        int bucket = bucketFor(needed);
+        for (int candidate = bucket; candidate <= bucket + 1; candidate++) {
+            ArrayDeque<Bitmap> free = buckets.get(candidate);
+            if (free == null) continue;
+            for (Iterator<Bitmap> it = free.iterator(); it.hasNext(); ) {
+                Bitmap bitmap = it.next();
+                if (bitmap.getAllocationByteCount() < needed) continue;
+                it.remove();
+                arrivalOrder.remove(bitmap);
+                pooledBytes -= bitmap.getAllocationByteCount();
+                bitmap.reconfigure(width, height, config);
+                hits++;
+                return bitmap;
+            }
+        }
+        misses++;
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    // Entrega un bitmap que ya nadie usa. Los inmutables (recursos, miniaturas) no se tocan
+    // y quedan para el GC; los que exceden el presupuesto se reciclan.
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) return;
+        if (arrivalOrder.contains(bitmap)) return;
+        int bytes = bitmap.getAllocationByteCount();
+        if (bytes > budgetBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        int bucket = bucketFor(bytes);
+        ArrayDeque<Bitmap> free = buckets.get(bucket);
+        if (free == null) {
+            free = new ArrayDeque<>();
+            buckets.put(bucket, free);
+        }
+        free.add(bitmap);
+        arrivalOrder.add(bitmap);
+        pooledBytes += bytes;
+        trimTo(budgetBytes);
+    }
+
+    // Ante presión de memoria del sistema se sueltan todos los libres
+    public synchronized void clear() {
+        trimTo(0);
+        Log.i(TAG, formatSummary());
+    }
+
+    private void trimTo(long maxBytes) {
+        Iterator<Bitmap> oldest = arrivalOrder.iterator();
+        while (pooledBytes > maxBytes && oldest.hasNext()) {
+            Bitmap bitmap = oldest.next();
+            oldest.remove();
+            int bytes = bitmap.getAllocationByteCount();
+            buckets.get(bucketFor(bytes)).remove(bitmap);
+            pooledBytes -= bytes;
+            bitmap.recycle();
+            evictions++;
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized float getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0f : hits / (float) total;
+    }
+
+    // Una línea para el overlay de depuración
+    public synchronized String formatSummary() {
+        return String.format(Locale.US, "bitmaps: %.0f%% aciertos (%d/%d), %d desalojos, %.1f / %.1f MB",
+                getHitRate() * 100, hits, hits + misses, evictions,
+                pooledBytes / (1024f * 1024f), budgetBytes / (1024f * 1024f));
+    }
+
+    // Menor k tal que bytes <= 2^k
+    private static int bucketFor(int bytes) {
+        return bytes <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(bytes - 1);
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            case RGBA_F16:
+                return 8;
+            default:
+                return 4;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.ecovision;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public class CaptureDecoder {
+
+    private static final String TAG = "CaptureDecoder";
+
+    // Decodifica la foto submuestreada: el JPEG completo nunca se carga en memoria
+    public static Bitmap decodeSampled(String path, int requiredSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, requiredSize);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap reusable = reuseFromPool(options);
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeFile(path, options);
+        } catch (IllegalArgumentException e) {
+            // El bitmap del pool no sirvió para este formato; se decodifica uno nuevo
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(path, options);
+        }
+        releaseUnused(reusable, bitmap);
+        if (bitmap == null) {
+            return null;
+        }
+        try {
+            return applyExifRotation(new ExifInterface(path), bitmap);
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo leer EXIF", e);
+            return bitmap;
+        }
+    }
+
+    // Misma decodificación para imágenes de la galería; el stream se abre una vez por pasada
+    public static Bitmap decodeSampled(ContentResolver resolver, Uri uri, int requiredSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream stream = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(stream, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, requiredSize);
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap reusable = reuseFromPool(options);
+        Bitmap bitmap;
+        try (InputStream stream = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(stream, null, options);
+        } catch (IllegalArgumentException e) {
+            options.inBitmap = null;
+            try (InputStream stream = resolver.openInputStream(uri)) {
+                bitmap = BitmapFactory.decodeStream(stream, null, options);
+            }
+        }
+        releaseUnused(reusable, bitmap);
+        if (bitmap == null) {
+            return null;
+        }
+        try (InputStream stream = resolver.openInputStream(uri)) {
+            return applyExifRotation(new ExifInterface(stream), bitmap);
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo leer EXIF", e);
+            return bitmap;
+        }
+    }
+
+    // Pide al pool un bitmap del tamaño que saldrá de la decodificación y lo fija como inBitmap.
+    // Se redondea hacia arriba: el decodificador solo exige que la asignación alcance.
+    private static Bitmap reuseFromPool(BitmapFactory.Options options) {
+        int sample = options.inSampleSize;
+        int width = (options.outWidth + sample - 1) / sample;
+        int height = (options.outHeight + sample - 1) / sample;
+        Bitmap reusable = BitmapPool.getInstance().get(width, height, options.inPreferredConfig);
+        options.inMutable = true;
+        options.inBitmap = reusable;
+        return reusable;
+    }
+
+    // Si el decodificador no usó el bitmap del pool (o falló) se devuelve para otra captura
+    private static void releaseUnused(Bitmap reusable, Bitmap decoded) {
+        if (decoded != reusable) {
+            BitmapPool.getInstance().put(reusable);
+        }
+    }
+
+    // Mayor potencia de 2 que mantiene el lado menor por encima del tamaño requerido
+    public static int calculateInSampleSize(int width, int height, int requiredSize) {
+        int sampleSize = 1;
+        int shortSide = Math.min(width, height);
+        while (shortSide / (sampleSize * 2) >= requiredSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // Giro que indica el EXIF de la foto, para quien decodifica recortes sin pasar por decodeSampled
+    public static int readRotationDegrees(String path) {
+        try {
+            return rotationDegrees(new ExifInterface(path));
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo leer EXIF", e);
+            return 0;
+        }
+    }
+
+    private static int rotationDegrees(ExifInterface exif) {
+        int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                ExifInterface.ORIENTATION_NORMAL);
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                return 270;
+            default:
+                return 0;
+        }
+    }
+
+    private static Bitmap applyExifRotation(ExifInterface exif, Bitmap bitmap) {
+        int degrees = rotationDegrees(exif);
+        if (degrees == 0) {
+            return bitmap;
+        }
+
+        // La rotación se hace sobre el bitmap ya reducido, no sobre la foto original,
+        // y se dibuja sobre un bitmap del pool en lugar de asignar uno nuevo
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        boolean swapped = degrees == 90 || degrees == 270;
+        Bitmap rotated = BitmapPool.getInstance().get(swapped ? height : width, swapped ? width : height,
+                Bitmap.Config.ARGB_8888);
+        Matrix matrix = new Matrix();
+        matrix.postRotate(degrees);
+        // Tras girar sobre el origen la imagen queda fuera del lienzo; se devuelve al cuadrante visible
+        if (degrees == 90) {
+            matrix.postTranslate(height, 0);
+        } else if (degrees == 180) {
+            matrix.postTranslate(width, height);
+        } else {
+            matrix.postTranslate(0, width);
+        }
+        // El bitmap reutilizado trae píxeles de otra foto; importa si la imagen tiene transparencia
+        rotated.eraseColor(Color.TRANSPARENT);
+        new Canvas(rotated).drawBitmap(bitmap, matrix, null);
+        BitmapPool.getInstance().put(bitmap);
+        return rotated;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ecovision;
+
+import android.util.Log;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+// Tras varios fallos seguidos del backend (error de red o 5xx) corta las llamadas durante un
+// tiempo y falla de inmediato con ServerUnavailableException, en vez de ocupar hilos esperando.
+// Pasado ese tiempo deja pasar una sola llamada de prueba: si responde, el circuito se cierra.
+public class CircuitBreaker implements Interceptor {
+
+    public interface Clock {
+        long nowMillis();
+    }
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final String TAG = "CircuitBreaker";
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Clock clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    // En HALF_OPEN solo una llamada a la vez comprueba si el backend volvió
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int failureThreshold, long openMillis, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        acquire();
+        boolean recorded = false;
+        try {
+            Response response = chain.proceed(chain.request());
+            if (response.code() >= 500) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            recorded = true;
+            return response;
+        } catch (IOException e) {
+            // Una llamada cancelada por el usuario no dice nada del backend
+            if (!chain.call().isCanceled()) {
+                onFailure();
+                recorded = true;
+            }
+            throw e;
+        } finally {
+            // Cancelación o RuntimeException de otro interceptor: sin veredicto, pero la prueba
+            // en HALF_OPEN se suelta siempre; si no, el circuito rechazaría todo para siempre
+            if (!recorded) {
+                release();
+            }
+        }
+    }
+
+    private synchronized void acquire() throws ServerUnavailableException {
+        if (state == State.OPEN) {
+            if (clock.nowMillis() - openedAt < openMillis) {
+                throw new ServerUnavailableException("Servidor no disponible");
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                throw new ServerUnavailableException("Servidor no disponible");
+            }
+            probeInFlight = true;
+        }
+    }
+
+    private synchronized void release() {
+        probeInFlight = false;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            Log.i(TAG, "Backend disponible de nuevo, circuito cerrado");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                Log.w(TAG, consecutiveFailures + " fallos seguidos, circuito abierto " + openMillis + " ms");
+            }
+            state = State.OPEN;
+            openedAt = clock.nowMillis();
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.ecovision;
+
+import android.content.Context;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+// Catálogo de clases indexado por la salida del modelo; se lee una vez de assets/classes.json
+public class ClassCatalog {
+
+    public static class Entry {
+        @SerializedName("etiqueta")
+        private String label;
+        @SerializedName("mensaje")
+        private String message;
+        @SerializedName("info")
+        private String info;
+        @SerializedName("puntos")
+        private int points;
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getInfo() {
+            return info;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+    }
+
+    private static final String ASSET = "classes.json";
+
+    private static ClassCatalog instance;
+
+    @SerializedName("clases")
+    private Entry[] entries;
+    // Para índices fuera del catálogo (un modelo con más clases que las conocidas)
+    @SerializedName("desconocida")
+    private Entry unknown;
+    // Por debajo de esta confianza no se da un veredicto ni se suman puntos
+    @SerializedName("confianzaMinima")
+    private float minConfidence;
+    @SerializedName("dudosa")
+    private Entry notSure;
+
+    public static synchronized ClassCatalog getInstance(Context context) {
+        if (instance == null) {
+            try (Reader reader = new InputStreamReader(
+                    context.getApplicationContext().getAssets().open(ASSET), StandardCharsets.UTF_8)) {
+                instance = new Gson().fromJson(reader, ClassCatalog.class);
+            } catch (IOException e) {
+                throw new IllegalStateException("No se pudo leer " + ASSET, e);
+            }
+        }
+        return instance;
+    }
+
+    public Entry get(int index) {
+        return index >= 0 && index < entries.length ? entries[index] : unknown;
+    }
+
+    public String getLabel(int index) {
+        return index >= 0 && index < entries.length ? entries[index].getLabel() : "Clase " + index;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public Entry getUnknown() {
+        return unknown;
+    }
+
+    public float getMinConfidence() {
+        return minConfidence;
+    }
+
+    public Entry getNotSure() {
+        return notSure;
+    }
+}
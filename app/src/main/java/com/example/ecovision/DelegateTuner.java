@@ -0,0 +1,149 @@
+package com.example.ecovision;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DelegateTuner {
+
+    public static class CpuConfig {
+        private final int numThreads;
+        private final boolean useXnnpack;
+
+        public CpuConfig(int numThreads, boolean useXnnpack) {
+            this.numThreads = numThreads;
+            this.useXnnpack = useXnnpack;
+        }
+
+        public int getNumThreads() {
+            return numThreads;
+        }
+
+        public boolean isUseXnnpack() {
+            return useXnnpack;
+        }
+
+        public Interpreter.Options toOptions() {
+            return new Interpreter.Options()
+                    .setNumThreads(numThreads)
+                    .setUseXNNPACK(useXnnpack);
+        }
+
+        @Override
+        public String toString() {
+            return numThreads + " hilos, XNNPACK " + (useXnnpack ? "sí" : "no");
+        }
+    }
+
+    private static final String TAG = "DelegateTuner";
+    private static final String PREFS = "ajuste_cpu";
+    private static final String KEY_MODEL = "modelo";
+    private static final String KEY_THREADS = "hilos";
+    private static final String KEY_XNNPACK = "xnnpack";
+    private static final String KEY_REPORT = "informe";
+
+    private static final int MAX_THREADS = 4;
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    private final SharedPreferences prefs;
+
+    public DelegateTuner(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    // Reutiliza la configuración guardada; solo mide si el modelo o el sistema cambiaron.
+    // modelId identifica el contenido del modelo: dos modelos del mismo tamaño no comparten ajuste
+    public CpuConfig loadOrTune(ByteBuffer model, String modelId) {
+        String modelKey = modelId + ":" + Build.FINGERPRINT;
+        if (modelKey.equals(prefs.getString(KEY_MODEL, null))) {
+            CpuConfig saved = new CpuConfig(prefs.getInt(KEY_THREADS, 1), prefs.getBoolean(KEY_XNNPACK, true));
+            Log.i(TAG, "Configuración guardada: " + saved);
+            return saved;
+        }
+
+        CpuConfig best = tune(model);
+        prefs.edit()
+                .putString(KEY_MODEL, modelKey)
+                .putInt(KEY_THREADS, best.getNumThreads())
+                .putBoolean(KEY_XNNPACK, best.isUseXnnpack())
+                .apply();
+        return best;
+    }
+
+    private CpuConfig tune(ByteBuffer model) {
+        int maxThreads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+        List<CpuConfig> candidates = new ArrayList<>();
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            candidates.add(new CpuConfig(threads, true));
+            candidates.add(new CpuConfig(threads, false));
+        }
+
+        CpuConfig best = new CpuConfig(1, true);
+        long bestMicros = Long.MAX_VALUE;
+        StringBuilder report = new StringBuilder();
+        for (CpuConfig candidate : candidates) {
+            long micros;
+            try {
+                micros = measureMedianMicros(model, candidate);
+            } catch (Exception e) {
+                Log.w(TAG, "Configuración no disponible: " + candidate, e);
+                report.append(candidate).append(": error\n");
+                continue;
+            }
+            report.append(candidate).append(": ").append(micros / 1000f).append(" ms\n");
+            if (micros < bestMicros) {
+                bestMicros = micros;
+                best = candidate;
+            }
+        }
+        report.append("Elegida: ").append(best);
+
+        // Volcado de depuración de las latencias medidas por configuración
+        Log.i(TAG, "Resultados del ajuste de CPU:\n" + report);
+        prefs.edit().putString(KEY_REPORT, report.toString()).apply();
+        return best;
+    }
+
+    private static long measureMedianMicros(ByteBuffer model, CpuConfig config) {
+        Interpreter interpreter = new Interpreter(model, config.toOptions());
+        try {
+            ByteBuffer input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes());
+            input.order(ByteOrder.nativeOrder());
+            ByteBuffer output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes());
+            output.order(ByteOrder.nativeOrder());
+
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                input.rewind();
+                output.rewind();
+                interpreter.run(input, output);
+            }
+            long[] samples = new long[MEASURED_RUNS];
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                input.rewind();
+                output.rewind();
+                long start = System.nanoTime();
+                interpreter.run(input, output);
+                samples[i] = (System.nanoTime() - start) / 1000;
+            }
+            Arrays.sort(samples);
+            return samples[MEASURED_RUNS / 2];
+        } finally {
+            interpreter.close();
+        }
+    }
+
+    // Último informe de latencias medido, para inspección en depuración
+    public String getLastReport() {
+        return prefs.getString(KEY_REPORT, "Sin mediciones");
+    }
+}
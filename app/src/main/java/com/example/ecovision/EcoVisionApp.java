@@ -0,0 +1,28 @@
+package com.example.ecovision;
+
+import android.app.Application;
+
+public class EcoVisionApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // El modelo se carga y calienta en segundo plano mientras se muestra la primera pantalla
+        ModelHolder.getInstance().preload(this);
+        // Después de la carga inicial busca un modelo más nuevo; si lo hay se activa sin reiniciar
+        ModelHolder.getInstance().checkForUpdates(this);
+        // Reintenta subir los escaneos que quedaron pendientes sin conexión
+        ScanSyncUploader.getInstance(this).requestSync();
+        // Si el usuario aceptó compartir fotos, las pendientes se suben al haber wifi
+        TrainingSampleCollector.getInstance(this).start();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // En segundo plano o con poca memoria los bitmaps libres son lo primero que se suelta
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            BitmapPool.getInstance().clear();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ecovision;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+public class EcoVisionDatabase extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "ecovision.db";
+    private static final int DATABASE_VERSION = 2;
+
+    public static final String TABLE_SCAN_QUEUE = "scan_queue";
+    public static final String TABLE_SCANS = "scans";
+    public static final String TABLE_MATERIAL_TOTALS = "material_totals";
+    public static final String TABLE_DAILY_TOTALS = "daily_totals";
+    public static final String TABLE_COUNTERS = "counters";
+
+    private static EcoVisionDatabase instance;
+
+    public static synchronized EcoVisionDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new EcoVisionDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private EcoVisionDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // WAL: las lecturas del resumen no esperan a las escrituras de escaneos
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        // Cola durable de escaneos pendientes de subir
+        db.execSQL("CREATE TABLE " + TABLE_SCAN_QUEUE + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "label TEXT NOT NULL, "
+                + "confidence REAL NOT NULL, "
+                + "timestamp INTEGER NOT NULL)");
+        createHistoryTables(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            createHistoryTables(db);
+        }
+    }
+
+    private static void createHistoryTables(SQLiteDatabase db) {
+        // Historial completo de clasificaciones
+        db.execSQL("CREATE TABLE " + TABLE_SCANS + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "label TEXT NOT NULL, "
+                + "confidence REAL NOT NULL, "
+                + "points INTEGER NOT NULL, "
+                + "timestamp INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_scans_timestamp ON " + TABLE_SCANS + " (timestamp)");
+        db.execSQL("CREATE INDEX idx_scans_label_timestamp ON " + TABLE_SCANS + " (label, timestamp)");
+
+        // Contadores precalculados: el resumen nunca recorre el historial completo
+        db.execSQL("CREATE TABLE " + TABLE_MATERIAL_TOTALS + " ("
+                + "label TEXT PRIMARY KEY, "
+                + "count INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + TABLE_DAILY_TOTALS + " ("
+                + "day INTEGER PRIMARY KEY, "
+                + "count INTEGER NOT NULL, "
+                + "points INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + TABLE_COUNTERS + " ("
+                + "name TEXT PRIMARY KEY, "
+                + "value INTEGER NOT NULL)");
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.ecovision;
+
+import android.graphics.Bitmap;
+
+import com.example.ecovision.core.PixelPacker;
+
+import org.tensorflow.lite.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class ImagePreprocessor {
+
+    private final int inputSize;
+    private final boolean floatInput;
+    // El empaquetado no depende de Android y vive en vision-core, donde se mide con JMH
+    private final PixelPacker packer;
+    private final ByteBuffer inputBuffer;
+
+    // Fila reutilizable para leer el bitmap sin copiarlo completo
+    private int[] rowPixels = new int[0];
+
+    // Fila ya convertida desde YUV o ya girada (sin remapeo de columnas)
+    private final int[] rotatedRow;
+
+    // Bitmap completo para los recortes que hay que girar; crece solo si llega uno mayor
+    private int[] bitmapPixels = new int[0];
+
+    public ImagePreprocessor(ModelSpec spec) {
+        this(spec.getInputSize(), spec.isFloatInput(), spec.getInputDataType() == DataType.INT8);
+    }
+
+    public ImagePreprocessor(int inputSize, boolean floatInput) {
+        this(inputSize, floatInput, false);
+    }
+
+    public ImagePreprocessor(int inputSize, boolean floatInput, boolean signedInput) {
+        this.inputSize = inputSize;
+        this.floatInput = floatInput;
+        this.packer = new PixelPacker(inputSize, floatInput, signedInput);
+        this.rotatedRow = new int[inputSize];
+
+        inputBuffer = ByteBuffer.allocateDirect(packer.getInputBytes());
+        inputBuffer.order(ByteOrder.nativeOrder());
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public boolean isFloatInput() {
+        return floatInput;
+    }
+
+    public ByteBuffer getInputBuffer() {
+        return inputBuffer;
+    }
+
+    // Redimensiona (vecino más cercano, igual que createScaledBitmap sin filtro) y empaqueta en una sola pasada
+    public ByteBuffer process(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (rowPixels.length < width) {
+            rowPixels = new int[width];
+        }
+        int[] columns = packer.columnIndexFor(width);
+
+        inputBuffer.rewind();
+        int lastRow = -1;
+        for (int y = 0; y < inputSize; y++) {
+            int sourceRow = PixelPacker.sourceRow(y, height, inputSize);
+            if (sourceRow != lastRow) {
+                bitmap.getPixels(rowPixels, 0, width, 0, sourceRow, width, 1);
+                lastRow = sourceRow;
+            }
+            packer.packRow(rowPixels, 0, columns, inputBuffer);
+        }
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    // Igual que process(Bitmap) aplicando un giro horario; para recortes decodificados sin el EXIF aplicado
+    public ByteBuffer process(Bitmap bitmap, int rotationDegrees) {
+        if (rotationDegrees == 0) {
+            return process(bitmap);
+        }
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (bitmapPixels.length < width * height) {
+            bitmapPixels = new int[width * height];
+        }
+        bitmap.getPixels(bitmapPixels, 0, width, 0, 0, width, height);
+
+        boolean swapped = rotationDegrees == 90 || rotationDegrees == 270;
+        int rotatedWidth = swapped ? height : width;
+        int rotatedHeight = swapped ? width : height;
+
+        inputBuffer.rewind();
+        for (int y = 0; y < inputSize; y++) {
+            int v = PixelPacker.sourceRow(y, rotatedHeight, inputSize);
+            for (int x = 0; x < inputSize; x++) {
+                int u = (int) ((long) x * rotatedWidth / inputSize);
+                int sourceX;
+                int sourceY;
+                switch (rotationDegrees) {
+                    case 90:
+                        sourceX = v;
+                        sourceY = height - 1 - u;
+                        break;
+                    case 180:
+                        sourceX = width - 1 - u;
+                        sourceY = height - 1 - v;
+                        break;
+                    default:
+                        sourceX = width - 1 - v;
+                        sourceY = u;
+                        break;
+                }
+                rotatedRow[x] = bitmapPixels[sourceY * width + sourceX];
+            }
+            packer.packRow(rotatedRow, 0, packer.getIdentityIndex(), inputBuffer);
+        }
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    // Misma ruta sobre un arreglo ARGB ya en memoria (pruebas y fuentes sin Bitmap)
+    public ByteBuffer process(int[] pixels, int width, int height) {
+        inputBuffer.rewind();
+        packer.pack(pixels, width, height, inputBuffer);
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    // Convierte un frame YUV_420_888 directamente al buffer de entrada, sin Bitmap intermedio.
+    // Toma el cuadrado central y aplica la rotación indicada por la cámara.
+    public ByteBuffer processYuv(ByteBuffer yPlane, ByteBuffer uPlane, ByteBuffer vPlane,
+                                 int width, int height, int yRowStride,
+                                 int uvRowStride, int uvPixelStride, int rotationDegrees) {
+        int side = Math.min(width, height);
+        int offsetX = (width - side) / 2;
+        int offsetY = (height - side) / 2;
+
+        inputBuffer.rewind();
+        for (int y = 0; y < inputSize; y++) {
+            int v = (int) ((long) y * side / inputSize);
+            for (int x = 0; x < inputSize; x++) {
+                int u = (int) ((long) x * side / inputSize);
+                int sourceX;
+                int sourceY;
+                switch (rotationDegrees) {
+                    case 90:
+                        sourceX = v;
+                        sourceY = side - 1 - u;
+                        break;
+                    case 180:
+                        sourceX = side - 1 - u;
+                        sourceY = side - 1 - v;
+                        break;
+                    case 270:
+                        sourceX = side - 1 - v;
+                        sourceY = u;
+                        break;
+                    default:
+                        sourceX = u;
+                        sourceY = v;
+                        break;
+                }
+                sourceX += offsetX;
+                sourceY += offsetY;
+
+                int luma = yPlane.get(sourceY * yRowStride + sourceX) & 0xFF;
+                int uvIndex = (sourceY >> 1) * uvRowStride + (sourceX >> 1) * uvPixelStride;
+                int cb = (uPlane.get(uvIndex) & 0xFF) - 128;
+                int cr = (vPlane.get(uvIndex) & 0xFF) - 128;
+                rotatedRow[x] = yuvToArgb(luma, cb, cr);
+            }
+            packer.packRow(rotatedRow, 0, packer.getIdentityIndex(), inputBuffer);
+        }
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+
+    // BT.601 rango completo en punto fijo (coeficientes x1024)
+    private static int yuvToArgb(int luma, int cb, int cr) {
+        int r = luma + ((1436 * cr) >> 10);
+        int g = luma - ((352 * cb + 731 * cr) >> 10);
+        int b = luma + ((1815 * cb) >> 10);
+        r = r < 0 ? 0 : (r > 255 ? 255 : r);
+        g = g < 0 ? 0 : (g > 255 ? 255 : g);
+        b = b < 0 ? 0 : (b > 255 ? 255 : b);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.ecovision;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.ecovision.core.Classifier;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InferenceExecutor {
+
+    public interface Callback {
+        // fromCache indica que una captura casi idéntica ya se había clasificado: no cuenta como escaneo nuevo
+        void onResult(float[] scores, long latencyMs, boolean fromCache);
+
+        void onError(Exception e);
+
+        // Solo se invoca en peticiones que decodifican una foto desde archivo
+        default void onImageDecoded(Bitmap bitmap) {
+        }
+    }
+
+    private static final String TAG = "InferenceExecutor";
+
+    // Un solo hilo serializa las peticiones; el bloqueo sobre el intérprete cubre a una
+    // instancia anterior que aún termine su última inferencia tras recrearse la actividad
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "ecovision-inferencia"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Solo cambian en el hilo de inferencia, al recrear el intérprete con otro número de hilos
+    private volatile Interpreter interpreter;
+    private final ModelSpec modelSpec;
+    private final ImagePreprocessor preprocessor;
+    // Las capturas pasan por el backend; el lote sigue usando el intérprete para redimensionarlo
+    private volatile Classifier classifier;
+    // Reescaneos del mismo objeto: hasta 32 resultados de menos de 10 s (el usuario sigue apuntando al
+    // mismo objeto), con hash idéntico o a distancia de Hamming máxima 2 de 64 bits
+    private final PerceptualHashCache resultCache = new PerceptualHashCache(32, 2, 10_000);
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+
+    // Cada captura nueva invalida las anteriores; las pendientes se descartan sin ejecutarse
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong completedRequests = new AtomicLong();
+    // Invocaciones seguidas en que falló el modelo (no la decodificación); una correcta lo pone a 0
+    private final AtomicInteger consecutiveModelFailures = new AtomicInteger();
+    private final AtomicLong totalLatencyMs = new AtomicLong();
+    private volatile long lastLatencyMs;
+    // Recibe la duración de cada invocación para decidir ritmo, hilos y resolución
+    private volatile AdaptiveScheduler scheduler;
+
+    public InferenceExecutor(Interpreter interpreter) {
+        this.interpreter = interpreter;
+        this.modelSpec = ModelSpec.fromInterpreter(interpreter);
+        this.preprocessor = new ImagePreprocessor(modelSpec);
+        this.classifier = new TfliteClassifier(interpreter, modelSpec);
+    }
+
+    public ModelSpec getModelSpec() {
+        return modelSpec;
+    }
+
+    public void submit(Bitmap bitmap, Callback callback) {
+        enqueue(null, bitmap, callback);
+    }
+
+    // Decodifica la foto en el hilo de inferencia directamente a la resolución del modelo
+    public void submit(String photoPath, Callback callback) {
+        enqueue(photoPath, null, callback);
+    }
+
+    private void enqueue(String photoPath, Bitmap source, Callback callback) {
+        final long requestGeneration = generation.incrementAndGet();
+        final long submittedAt = System.nanoTime();
+        queueDepth.incrementAndGet();
+
+        worker.execute(() -> {
+            try {
+                if (isStale(requestGeneration)) return;
+
+                Bitmap bitmap = source;
+                if (photoPath != null) {
+                    long decodeStart = System.nanoTime();
+                    bitmap = CaptureDecoder.decodeSampled(photoPath, preprocessor.getInputSize());
+                    metrics.record(PipelineMetrics.Stage.DECODE, decodeStart);
+                    if (bitmap == null) {
+                        throw new IllegalStateException("No se pudo decodificar la foto");
+                    }
+                    Bitmap decoded = bitmap;
+                    mainHandler.post(() -> {
+                        if (!isStale(requestGeneration)) {
+                            callback.onImageDecoded(decoded);
+                        }
+                    });
+                }
+
+                long hashStart = System.nanoTime();
+                long imageHash = resultCache.hash(bitmap);
+                float[] cached = resultCache.lookup(imageHash);
+                metrics.record(PipelineMetrics.Stage.HASH, hashStart);
+                if (cached != null) {
+                    long latencyMs = (System.nanoTime() - submittedAt) / 1_000_000;
+                    float[] scores = cached.clone();
+                    mainHandler.post(() -> {
+                        if (!isStale(requestGeneration)) {
+                            callback.onResult(scores, latencyMs, true);
+                        }
+                    });
+                    return;
+                }
+
+                long preprocessStart = System.nanoTime();
+                ByteBuffer inputBuffer = preprocessor.process(bitmap);
+                metrics.record(PipelineMetrics.Stage.PREPROCESS, preprocessStart);
+                if (isStale(requestGeneration)) return;
+
+                float[] scores = runModel(inputBuffer);
+                long latencyMs = (System.nanoTime() - submittedAt) / 1_000_000;
+                recordLatency(latencyMs);
+                resultCache.put(imageHash, scores.clone());
+
+                mainHandler.post(() -> {
+                    // Otra captura llegó mientras se ejecutaba: el resultado ya no interesa
+                    if (!isStale(requestGeneration)) {
+                        callback.onResult(scores, latencyMs, false);
+                    }
+                });
+            } catch (Exception e) {
+                Log.e(TAG, "Error en inferencia", e);
+                mainHandler.post(() -> callback.onError(e));
+            } finally {
+                queueDepth.decrementAndGet();
+            }
+        });
+    }
+
+    // Devuelve una copia propia: el resultado se publica a otro hilo
+    private float[] runModel(ByteBuffer inputBuffer) {
+        long start = System.nanoTime();
+        float[] scores;
+        try {
+            scores = classifier.classify(inputBuffer);
+        } catch (RuntimeException e) {
+            consecutiveModelFailures.incrementAndGet();
+            throw e;
+        }
+        consecutiveModelFailures.set(0);
+        metrics.record(PipelineMetrics.Stage.INFERENCE, start);
+        reportInvoke(System.nanoTime() - start, 1);
+        return scores;
+    }
+
+    // Mismo modelo con otro número de hilos: se cambia en el hilo de inferencia entre dos peticiones,
+    // sin tocar la cola, la caché ni un lote en curso. release se llama cuando el anterior ya no se usa.
+    public void replaceInterpreter(Interpreter next, Runnable release) {
+        try {
+            worker.execute(() -> {
+                interpreter = next;
+                classifier = new TfliteClassifier(next, modelSpec);
+                release.run();
+            });
+        } catch (RejectedExecutionException e) {
+            // Ejecutor ya detenido: no volverá a usar el anterior
+            release.run();
+        }
+    }
+
+    public Classifier getClassifier() {
+        return classifier;
+    }
+
+    // Para el modo en vivo: el analizador de CameraX corre en este mismo hilo
+    public Executor getWorkerExecutor() {
+        return worker;
+    }
+
+    // Solo debe usarse desde el hilo de inferencia
+    public ImagePreprocessor getPreprocessor() {
+        return preprocessor;
+    }
+
+    // Ejecuta el modelo de forma síncrona; solo desde el hilo de inferencia
+    public float[] runOnWorker(ByteBuffer inputBuffer) {
+        long start = System.nanoTime();
+        float[] scores = runModel(inputBuffer);
+        recordLatency((System.nanoTime() - start) / 1_000_000);
+        return scores;
+    }
+
+    // Para trabajos que deben usar el intérprete sin pasar por la cola de capturas
+    public <T> Future<T> callOnWorker(Callable<T> task) {
+        return worker.submit(task);
+    }
+
+    // Ejecuta un lote [n, N, N, 3] redimensionando la dimensión de lote; solo desde el hilo de inferencia.
+    // Al terminar el intérprete vuelve a la forma [1, N, N, 3] que usan las capturas.
+    // Usa el intérprete directamente, no el Classifier: un backend falso no cubre lotes ni teselas.
+    public float[][] runBatchOnWorker(ByteBuffer batchInput, int batchSize) {
+        int size = modelSpec.getInputSize();
+        int numClasses = modelSpec.getNumClasses();
+        float[][] scores = new float[batchSize][numClasses];
+        long start = System.nanoTime();
+        synchronized (interpreter) {
+            interpreter.resizeInput(0, new int[]{batchSize, size, size, 3});
+            try {
+                batchInput.rewind();
+                if (modelSpec.isQuantizedOutput()) {
+                    byte[][] raw = new byte[batchSize][numClasses];
+                    interpreter.run(batchInput, raw);
+                    boolean unsigned = modelSpec.getOutputDataType() == DataType.UINT8;
+                    for (int b = 0; b < batchSize; b++) {
+                        for (int i = 0; i < numClasses; i++) {
+                            scores[b][i] = modelSpec.dequantize(unsigned ? raw[b][i] & 0xFF : raw[b][i]);
+                        }
+                    }
+                } else {
+                    interpreter.run(batchInput, scores);
+                }
+            } finally {
+                interpreter.resizeInput(0, new int[]{1, size, size, 3});
+                interpreter.allocateTensors();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        recordLatency(elapsedNanos / 1_000_000);
+        reportInvoke(elapsedNanos, batchSize);
+        return scores;
+    }
+
+    // El presupuesto es por imagen: un lote se reparte entre sus imágenes
+    private void reportInvoke(long elapsedNanos, int images) {
+        AdaptiveScheduler current = scheduler;
+        if (current != null) {
+            current.recordLatency(elapsedNanos / 1_000_000 / images);
+        }
+    }
+
+    public void setScheduler(AdaptiveScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // null si nadie ajusta el ritmo
+    public AdaptiveScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public void postToMain(Runnable runnable) {
+        mainHandler.post(runnable);
+    }
+
+    private boolean isStale(long requestGeneration) {
+        return requestGeneration != generation.get();
+    }
+
+    private void recordLatency(long latencyMs) {
+        lastLatencyMs = latencyMs;
+        totalLatencyMs.addAndGet(latencyMs);
+        completedRequests.incrementAndGet();
+    }
+
+    // Descarta cualquier petición pendiente o en curso
+    public void cancelPending() {
+        generation.incrementAndGet();
+    }
+
+    public PerceptualHashCache getResultCache() {
+        return resultCache;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getConsecutiveModelFailures() {
+        return consecutiveModelFailures.get();
+    }
+
+    public long getLastLatencyMs() {
+        return lastLatencyMs;
+    }
+
+    public long getAverageLatencyMs() {
+        long completed = completedRequests.get();
+        return completed == 0 ? 0 : totalLatencyMs.get() / completed;
+    }
+
+    // El intérprete pertenece a ModelHolder y sobrevive a la actividad; aquí solo se detiene el hilo
+    public void shutdown() {
+        cancelPending();
+        worker.shutdown();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.ecovision;
+
+import java.util.Arrays;
+
+public class LatencyHistogram {
+
+    public static class Snapshot {
+        private final int count;
+        private final long p50Micros;
+        private final long p95Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        Snapshot(int count, long p50Micros, long p95Micros, long p99Micros, long maxMicros) {
+            this.count = count;
+            this.p50Micros = p50Micros;
+            this.p95Micros = p95Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP95Micros() {
+            return p95Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+    }
+
+    // Ventana circular: solo se guardan las últimas muestras, sin asignar memoria al registrar
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyHistogram(int windowSize) {
+        samples = new long[windowSize];
+    }
+
+    public synchronized void record(long micros) {
+        samples[next] = micros;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+    }
+
+    // Los percentiles se calculan solo al consultar, nunca en el camino de la captura
+    public Snapshot snapshot() {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, count);
+        }
+        if (sorted.length == 0) {
+            return new Snapshot(0, 0, 0, 0, 0);
+        }
+        Arrays.sort(sorted);
+        return new Snapshot(sorted.length, percentile(sorted, 50), percentile(sorted, 95),
+                percentile(sorted, 99), sorted[sorted.length - 1]);
+    }
+
+    // Método del rango más cercano
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+
+    public synchronized void reset() {
+        next = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ecovision;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import com.example.ecovision.core.ScoreSmoother;
+import com.example.ecovision.core.Scores;
+
+import java.nio.ByteBuffer;
+
+public class LiveFrameAnalyzer implements ImageAnalysis.Analyzer {
+
+    public interface Listener {
+        // Se invoca en el hilo principal solo cuando la etiqueta se estabiliza
+        void onStableLabel(int labelIndex, float[] scores);
+    }
+
+    private static final String TAG = "LiveFrameAnalyzer";
+    private static final float SMOOTHING_ALPHA = 0.4f;
+
+    private final InferenceExecutor inferenceExecutor;
+    private final StableLabelFilter labelFilter;
+    private final Listener listener;
+    // Suaviza el parpadeo entre frames antes de decidir la etiqueta
+    private final ScoreSmoother smoother = new ScoreSmoother(SMOOTHING_ALPHA);
+    private volatile boolean active = true;
+
+    public LiveFrameAnalyzer(InferenceExecutor inferenceExecutor, StableLabelFilter labelFilter, Listener listener) {
+        this.inferenceExecutor = inferenceExecutor;
+        this.labelFilter = labelFilter;
+        this.listener = listener;
+    }
+
+    // Corre en el hilo de inferencia; CameraX conserva solo el último frame mientras este trabaja
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        try {
+            if (!active) return;
+            // Con calor o latencia alta se analizan menos frames; el resto se cierra sin inferir
+            AdaptiveScheduler scheduler = inferenceExecutor.getScheduler();
+            if (scheduler != null && !scheduler.shouldAnalyzeFrame()) return;
+
+            ImageProxy.PlaneProxy[] planes = image.getPlanes();
+            ByteBuffer inputBuffer = inferenceExecutor.getPreprocessor().processYuv(
+                    planes[0].getBuffer(), planes[1].getBuffer(), planes[2].getBuffer(),
+                    image.getWidth(), image.getHeight(), planes[0].getRowStride(),
+                    planes[1].getRowStride(), planes[1].getPixelStride(),
+                    image.getImageInfo().getRotationDegrees());
+            float[] smoothed = smoother.update(inferenceExecutor.runOnWorker(inputBuffer));
+
+            int maxIndex = Scores.argMax(smoothed);
+            int stableLabel = labelFilter.update(maxIndex, smoothed[maxIndex], System.currentTimeMillis());
+            if (stableLabel != StableLabelFilter.NO_LABEL) {
+                // El suavizador reutiliza su arreglo en el siguiente frame
+                float[] scores = smoothed.clone();
+                inferenceExecutor.postToMain(() -> {
+                    if (active) {
+                        listener.onStableLabel(stableLabel, scores);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error analizando frame", e);
+        } finally {
+            image.close();
+        }
+    }
+
+    public void stop() {
+        active = false;
+    }
+}
@@ -1,4 +1,5 @@
 package com.example.ecovision;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.widget.Toast;
@@ -8,32 +9,59 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
-import org.json.JSONObject;
+import com.google.gson.JsonElement;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 public class LoginActivity extends AppCompatActivity{
 
         private TextInputEditText etUsername, etPassword;
         private MaterialButton btnLogin;
-
-        private static final String API_URL = "https://ecovision.bsite.net/api/Usuarios/ValidarLogin";
+        // Petición de login en curso; los toques repetidos se ignoran mientras exista
+        private Call<JsonElement> loginCall;
 
         @Override
         protected void onCreate(Bundle savedInstanceState) {
             super.onCreate(savedInstanceState);
+
             setContentView(R.layout.login); // Asegúrate de que login.xml sea el nombre del layout
 
             etUsername = findViewById(R.id.etUsername);
             etPassword = findViewById(R.id.etPassword);
             btnLogin = findViewById(R.id.btnLogin);
 
+            // Arranque en caliente: con sesión vigente se entra directo; caducada, se pide login otra vez.
+            // La caducidad está cifrada y se lee fuera del hilo principal; mientras, no se puede enviar
+            btnLogin.setEnabled(false);
+            SessionStore.getInstance(this).checkSession(valid -> {
+                if (isFinishing() || isDestroyed()) return;
+                if (valid) {
+                    // Se entra sin esperar a la red; si el servidor ya no acepta el token se vuelve aquí
+                    Context app = getApplicationContext();
+                    SessionStore.getInstance(this).revalidate(() -> returnToLogin(app));
+                    openMain();
+                } else {
+                    btnLogin.setEnabled(loginCall == null);
+                }
+            });
+
             btnLogin.setOnClickListener(v -> validarLogin());
+            findViewById(R.id.linkRegister).setOnClickListener(v ->
+                    startActivity(new Intent(this, RegisterActivity.class)));
+        }
+
+        private void openMain() {
+            startActivity(new Intent(this, MainActivity.class));
+            finish();
+        }
+
+        // La sesión ya está borrada; se cierra lo que hubiera abierto y se pide login
+        static void returnToLogin(Context context) {
+            Toast.makeText(context, "Tu sesión ya no es válida, inicia sesión otra vez", Toast.LENGTH_LONG).show();
+            context.startActivity(new Intent(context, LoginActivity.class)
+                    .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK));
         }
 
         private void validarLogin() {
@@ -45,50 +73,50 @@ public class LoginActivity extends AppCompatActivity{
                 return;
             }
 
-            new Thread(() -> {
-                try {
-                    URL url = new URL(API_URL);
-                    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                    conn.setRequestMethod("POST");
-                    conn.setRequestProperty("Content-Type", "application/json; utf-8");
-                    conn.setRequestProperty("Accept", "application/json");
-                    conn.setDoOutput(true);
-
-                    JSONObject jsonBody = new JSONObject();
-                    jsonBody.put("username", username);
-                    jsonBody.put("password", password);
-
-                    OutputStream os = conn.getOutputStream();
-                    byte[] input = jsonBody.toString().getBytes("utf-8");
-                    os.write(input, 0, input.length);
-                    os.close();
-
-                    int code = conn.getResponseCode();
-                    InputStream is = (code == 200) ? conn.getInputStream() : conn.getErrorStream();
-
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(is, "utf-8"));
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line.trim());
-                    }
-
-                    runOnUiThread(() -> {
-                        if (code == 200 && !response.toString().equals("null")) {
-                            Toast.makeText(this, "Login exitoso", Toast.LENGTH_SHORT).show();
-                            // Aquí puedes redirigir a tu actividad principal, por ejemplo:
-                            Intent intent = new Intent(LoginActivity.this, MainActivity.class);
-                            startActivity(intent);
-                            finish();
-                        } else {
-                            Toast.makeText(this, "Credenciales incorrectas", Toast.LENGTH_SHORT).show();
+            if (loginCall != null) return;
+            btnLogin.setEnabled(false);
+
+            // Cliente compartido: la conexión keep-alive se reutiliza y la respuesta se parsea en streaming
+            loginCall = RetrofitClient.getLoginService().Login(new loginModel(username, password));
+            loginCall.enqueue(new Callback<JsonElement>() {
+                        @Override
+                        public void onResponse(Call<JsonElement> call, Response<JsonElement> response) {
+                            loginFinished();
+                            JsonElement body = response.body();
+                            if (response.isSuccessful() && body != null && !body.isJsonNull()) {
+                                // Sin token del servidor no hay sesión que revalidar: el próximo arranque pide login
+                                String token = SessionStore.tokenFrom(body);
+                                if (token != null) {
+                                    SessionStore.getInstance(LoginActivity.this).save(username, token);
+                                }
+                                Toast.makeText(LoginActivity.this, "Login exitoso", Toast.LENGTH_SHORT).show();
+                                openMain();
+                            } else {
+                                Toast.makeText(LoginActivity.this, "Credenciales incorrectas", Toast.LENGTH_SHORT).show();
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Call<JsonElement> call, Throwable t) {
+                            loginFinished();
+                            if (call.isCanceled()) return;
+                            Toast.makeText(LoginActivity.this, t instanceof ServerUnavailableException
+                                    ? "Servidor no disponible, intenta más tarde"
+                                    : "Error: " + t.getMessage(), Toast.LENGTH_LONG).show();
                         }
                     });
+        }
 
-                    conn.disconnect();
-                } catch (Exception e) {
-                    runOnUiThread(() -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_LONG).show());
-                }
-            }).start();
+        private void loginFinished() {
+            loginCall = null;
+            btnLogin.setEnabled(true);
+        }
+
+        @Override
+        protected void onDestroy() {
+            super.onDestroy();
+            if (loginCall != null) {
+                loginCall.cancel();
+            }
         }
 }
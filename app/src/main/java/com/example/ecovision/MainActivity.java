@@ -2,11 +2,14 @@ package com.example.ecovision;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
+import android.content.ClipData;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
+import android.net.Uri;
 import android.os.Bundle;
-import android.speech.tts.TextToSpeech;
+import android.provider.MediaStore;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
@@ -18,31 +21,57 @@ import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.Preview;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
+import androidx.lifecycle.ViewModelProvider;
 
-import org.tensorflow.lite.DataType;
-import org.tensorflow.lite.Interpreter;
-import org.tensorflow.lite.Tensor;
+import com.example.ecovision.core.ScorePostprocessor;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Arrays;
+import com.google.android.material.button.MaterialButton;
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final int REQUEST_IMAGE_CAPTURE = 1;
     private static final int REQUEST_CAMERA_PERMISSION = 2;
+    private static final int REQUEST_LIVE_CAMERA_PERMISSION = 3;
+    private static final int REQUEST_PICK_IMAGES = 4;
+    private static final String STATE_PHOTO_PATH = "photo_path";
     private ImageView imageView;
     private TextView resultTextView;
-    private Interpreter tflite;
-    private final int MODEL_INPUT_SIZE = 224;
-    private DataType inputDataType;
-    private TextToSpeech textToSpeech;
+    // Intérprete, voz, foto y puntaje sobreviven a la rotación; la actividad solo los muestra
+    private ScanViewModel viewModel;
     private TextView infoTextView;
     private TextView scoreTextView;
-    private int score = 0;
+    private String currentPhotoPath;
+    private PreviewView previewView;
+    private MaterialButton liveModeButton;
+    private ProcessCameraProvider cameraProvider;
+    private TileOverlayView tileOverlay;
+    // Un cambio de modelo cierra el ejecutor que usa el modo en vivo; se reanuda con el nuevo
+    private boolean restartLiveAfterSwap;
+    private LiveFrameAnalyzer liveFrameAnalyzer;
+    // 3 frames seguidos con la misma etiqueta; la misma no se repite antes de 4 s
+    private final StableLabelFilter liveLabelFilter = new StableLabelFilter(3, 0.6f, 4000);
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+    private ClassCatalog classCatalog;
+    // Las dos clases más probables, para explicar un resultado dudoso
+    private ScorePostprocessor postprocessor;
+    private TextView metricsOverlay;
 
     @SuppressLint("MissingInflatedId")
     @Override
@@ -51,26 +80,34 @@ public class MainActivity extends AppCompatActivity {
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
 
+        // La app de cámara puede provocar que el sistema recree la actividad
+        if (savedInstanceState != null) {
+            currentPhotoPath = savedInstanceState.getString(STATE_PHOTO_PATH);
+        }
+
         imageView = findViewById(R.id.imageView);
         resultTextView = findViewById(R.id.resultTextView);
+        classCatalog = ClassCatalog.getInstance(this);
+        postprocessor = new ScorePostprocessor(classCatalog.getMinConfidence());
+        metricsOverlay = findViewById(R.id.metricsOverlay);
+        tileOverlay = findViewById(R.id.tileOverlay);
         infoTextView = findViewById(R.id.infoTextView);
         scoreTextView = findViewById(R.id.scoreTextView);
         infoTextView.setVisibility(View.GONE); // Oculta el infoTextView al iniciar
+        previewView = findViewById(R.id.previewView);
+        liveModeButton = findViewById(R.id.liveModeButton);
+        MaterialButton galleryButton = findViewById(R.id.galleryButton);
         Button captureButton = findViewById(R.id.captureButton);
 
-        // Inicializar TextToSpeech
-        textToSpeech = new TextToSpeech(this, status -> {
-            if (status == TextToSpeech.SUCCESS) {
-                int result = textToSpeech.setLanguage(new Locale("es", "ES"));
-                if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
-                    Log.e("TTS", "Idioma no soportado");
-                    Toast.makeText(MainActivity.this, "Idioma no soportado", Toast.LENGTH_SHORT).show();
-                }
-            } else {
-                Log.e("TTS", "Inicialización fallida");
-                Toast.makeText(MainActivity.this, "Error en síntesis de voz", Toast.LENGTH_SHORT).show();
-            }
-        });
+        // Overlay de latencias solo en compilaciones depurables: pulsación larga lo muestra, tocarlo exporta
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            resultTextView.setOnLongClickListener(v -> {
+                metricsOverlay.setVisibility(metricsOverlay.getVisibility() == View.VISIBLE ? View.GONE : View.VISIBLE);
+                updateMetricsOverlay();
+                return true;
+            });
+            metricsOverlay.setOnClickListener(v -> exportMetrics());
+        }
 
 
 
@@ -79,22 +116,32 @@ public class MainActivity extends AppCompatActivity {
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.CAMERA}, REQUEST_CAMERA_PERMISSION);
         }
 
-        // Cargar modelo TFLite
-        try {
-            tflite = new Interpreter(Utils.loadModelFile(this, "model.tflite"));
-            // Obtener especificaciones del modelo
-            Tensor inputTensor = tflite.getInputTensor(0);
-            inputDataType = inputTensor.dataType();
-            Log.d("ModelSpecs", "Formato de entrada: " + inputDataType.toString() +
-                    " | Dimensión: " + Arrays.toString(inputTensor.shape()));
-        } catch (Exception e) {
-            Toast.makeText(this, "Error cargando modelo: " + e.getMessage(), Toast.LENGTH_LONG).show();
-            Log.e("ModelLoading", "Error carga modelo", e);
-        }
+        // Se crea una sola vez; tras una rotación devuelve el mismo con el modelo ya listo
+        viewModel = new ViewModelProvider(this).get(ScanViewModel.class);
+        viewModel.attach(host);
+        restoreDisplayedState();
+
+        liveModeButton.setOnClickListener(v -> {
+            if (liveFrameAnalyzer != null) {
+                stopLiveMode();
+            } else if (ContextCompat.checkSelfPermission(MainActivity.this, Manifest.permission.CAMERA)
+                    == PackageManager.PERMISSION_GRANTED) {
+                startLiveMode();
+            } else {
+                ActivityCompat.requestPermissions(this,
+                        new String[]{Manifest.permission.CAMERA},
+                        REQUEST_LIVE_CAMERA_PERMISSION);
+            }
+        });
+
+        galleryButton.setOnClickListener(v -> pickImages());
+        MaterialButton tilesButton = findViewById(R.id.tilesButton);
+        tilesButton.setOnClickListener(v -> classifyTiles());
 
         captureButton.setOnClickListener(v -> {
             if (ContextCompat.checkSelfPermission(MainActivity.this, Manifest.permission.CAMERA)
                     == PackageManager.PERMISSION_GRANTED) {
+                stopLiveMode();
                 openCamera();
             } else {
                 ActivityCompat.requestPermissions(this,
@@ -103,190 +150,450 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
-        // Inicializar score
+        scoreTextView.setOnClickListener(v -> showSummary());
+        scoreTextView.setOnLongClickListener(v -> {
+            toggleTrainingSamples();
+            return true;
+        });
+
         updateScore();
     }
 
+    // Foto y resultado que ya mostraba la actividad anterior
+    private void restoreDisplayedState() {
+        Bitmap displayed = viewModel.getDisplayedBitmap();
+        if (displayed != null) {
+            imageView.setImageBitmap(displayed);
+            if (viewModel.getRegions() != null) {
+                tileOverlay.setRegions(viewModel.getRegions(), viewModel.getRegionCaptions(),
+                        displayed.getWidth(), displayed.getHeight());
+            }
+        }
+        if (viewModel.getResultMessage() != null) {
+            showResult(viewModel.getResultMessage(), viewModel.getResultInfo());
+        }
+    }
+
+    private void clearRegions() {
+        tileOverlay.clear();
+        viewModel.setRegions(null, null);
+    }
+
+    private void showResult(String message, String info) {
+        viewModel.setResult(message, info);
+        resultTextView.setText(message);
+        if (info != null) {
+            infoTextView.setVisibility(View.VISIBLE);
+            infoTextView.setText(info);
+        } else {
+            infoTextView.setVisibility(View.GONE);
+        }
+    }
+
+    private final ScanViewModel.Host host = new ScanViewModel.Host() {
+        @Override
+        public void onExecutorClosing() {
+            restartLiveAfterSwap = liveFrameAnalyzer != null;
+            stopLiveMode();
+        }
+
+        @Override
+        public void onExecutorReady() {
+            if (restartLiveAfterSwap) {
+                restartLiveAfterSwap = false;
+                startLiveMode();
+            }
+        }
+
+        @Override
+        public void onModelError(Exception e) {
+            Toast.makeText(MainActivity.this, "Error cargando modelo: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+
+        @Override
+        public void onImageDecoded(Bitmap bitmap) {
+            imageView.setImageBitmap(bitmap);
+        }
+
+        @Override
+        public void onScores(float[] scores, boolean awardPoints) {
+            processResults(scores, awardPoints);
+        }
+
+        @Override
+        public void onBatchProgress(int processed, int total) {
+            resultTextView.setText("Clasificando " + processed + " de " + total + "...");
+        }
+
+        @Override
+        public void onBatchFinished(BatchClassifier.Result result) {
+            StringBuilder summary = new StringBuilder();
+            int[] counts = result.getCountsPerClass();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                summary.append(classCatalog.getLabel(i)).append(": ").append(counts[i]).append('\n');
+            }
+            if (result.getNotSure() > 0) {
+                summary.append("Dudosas: ").append(result.getNotSure()).append('\n');
+            }
+            if (result.getFailed() > 0) {
+                summary.append("Sin procesar: ").append(result.getFailed()).append('\n');
+            }
+            summary.append(String.format(Locale.getDefault(), "%.1f imágenes/s", result.getImagesPerSecond()));
+            showResult(result.getClassified() + " imágenes clasificadas"
+                    + (result.isComplete() ? "" : " (lote interrumpido)"), summary.toString());
+        }
+
+        @Override
+        public void onRegions(List<TileClassifier.Region> regions, int tileCount, long elapsedMs) {
+            Bitmap displayed = viewModel.getDisplayedBitmap();
+            if (displayed == null) return;
+            List<String> captions = new ArrayList<>();
+            StringBuilder summary = new StringBuilder();
+            for (TileClassifier.Region region : regions) {
+                String label = classCatalog.getLabel(region.getLabelIndex());
+                captions.add(String.format(Locale.getDefault(), "%s %.0f%%", label, region.getConfidence() * 100));
+                summary.append(label).append(": ").append(classCatalog.get(region.getLabelIndex()).getMessage())
+                        .append('\n');
+            }
+            summary.append(tileCount).append(" recortes en ").append(elapsedMs).append(" ms");
+            tileOverlay.setRegions(regions, captions, displayed.getWidth(), displayed.getHeight());
+            viewModel.setRegions(regions, captions);
+            showResult(regions.isEmpty()
+                    ? "No se reconoció ningún objeto con seguridad"
+                    : regions.size() + " zonas detectadas", summary.toString());
+        }
+
+        @Override
+        public void onError(String message, Exception e) {
+            Toast.makeText(MainActivity.this, message + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+
+        @Override
+        public void onScoreChanged(int score) {
+            updateScore();
+        }
+
+        @Override
+        public void onAnalysisSizeChanged() {
+            if (liveFrameAnalyzer != null) {
+                stopLiveMode();
+                startLiveMode();
+            }
+        }
+    };
+
+    private void startLiveMode() {
+        InferenceExecutor inferenceExecutor = viewModel.getInferenceExecutor();
+        if (inferenceExecutor == null) {
+            Toast.makeText(this, "Modelo no inicializado", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        liveLabelFilter.reset();
+        clearRegions();
+        liveFrameAnalyzer = new LiveFrameAnalyzer(inferenceExecutor, liveLabelFilter,
+                (labelIndex, scores) -> {
+                    viewModel.clearCaptureStart();
+                    processResults(scores, true);
+                });
+        imageView.setVisibility(View.GONE);
+        previewView.setVisibility(View.VISIBLE);
+        liveModeButton.setText("Detener modo en vivo");
+
+        ListenableFuture<ProcessCameraProvider> providerFuture = ProcessCameraProvider.getInstance(this);
+        providerFuture.addListener(() -> {
+            if (liveFrameAnalyzer == null) return;
+            try {
+                cameraProvider = providerFuture.get();
+                Preview preview = new Preview.Builder().build();
+                preview.setSurfaceProvider(previewView.getSurfaceProvider());
+
+                // Solo se conserva el último frame: si la inferencia va lenta, los demás se descartan
+                // La resolución la decide el planificador adaptativo: menos píxeles con calor o latencia alta
+                ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
+                        .setTargetResolution(viewModel.getScheduler().getSettings().getAnalysisSize())
+                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                        .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                        .build();
+                imageAnalysis.setAnalyzer(inferenceExecutor.getWorkerExecutor(), liveFrameAnalyzer);
+
+                cameraProvider.unbindAll();
+                cameraProvider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, preview, imageAnalysis);
+            } catch (Exception e) {
+                Log.e("LiveMode", "Error iniciando la cámara", e);
+                Toast.makeText(this, "Error iniciando la cámara", Toast.LENGTH_SHORT).show();
+                stopLiveMode();
+            }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    private void stopLiveMode() {
+        if (liveFrameAnalyzer == null) return;
+        liveFrameAnalyzer.stop();
+        liveFrameAnalyzer = null;
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        previewView.setVisibility(View.GONE);
+        imageView.setVisibility(View.VISIBLE);
+        liveModeButton.setText("Modo en vivo");
+    }
+
     private void openCamera() {
         Intent takePictureIntent = new Intent(android.provider.MediaStore.ACTION_IMAGE_CAPTURE);
         if (takePictureIntent.resolveActivity(getPackageManager()) != null) {
+            // La cámara escribe la foto completa en un archivo propio en lugar de devolver la miniatura
+            File photoFile = createPhotoFile();
+            if (photoFile != null) {
+                currentPhotoPath = photoFile.getAbsolutePath();
+                Uri photoUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", photoFile);
+                takePictureIntent.putExtra(MediaStore.EXTRA_OUTPUT, photoUri);
+                takePictureIntent.addFlags(Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+            }
             startActivityForResult(takePictureIntent, REQUEST_IMAGE_CAPTURE);
         } else {
             Toast.makeText(this, "No se encontró aplicación de cámara", Toast.LENGTH_SHORT).show();
         }
     }
 
+    private File createPhotoFile() {
+        // Se reutiliza un único archivo para que las capturas no se acumulen en disco
+        File directory = new File(getCacheDir(), "capturas");
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e("Camera", "No se pudo crear el directorio de capturas");
+            return null;
+        }
+        File photoFile = new File(directory, "captura.jpg");
+        // Evita clasificar una foto anterior si la cámara ignora EXTRA_OUTPUT
+        if (photoFile.exists() && !photoFile.delete()) {
+            Log.w("Camera", "No se pudo borrar la captura anterior");
+        }
+        return photoFile;
+    }
+
+    private void pickImages() {
+        stopLiveMode();
+        Intent pickIntent = new Intent(Intent.ACTION_GET_CONTENT);
+        pickIntent.setType("image/*");
+        pickIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+        startActivityForResult(Intent.createChooser(pickIntent, "Seleccionar imágenes"), REQUEST_PICK_IMAGES);
+    }
+
+    private void classifyBatch(List<Uri> uris) {
+        if (viewModel.getInferenceExecutor() == null) {
+            Toast.makeText(this, "Modelo no inicializado", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        clearRegions();
+        showResult("Clasificando " + uris.size() + " imágenes...", null);
+        viewModel.classifyBatch(uris);
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_PICK_IMAGES && resultCode == RESULT_OK && data != null) {
+            List<Uri> uris = new ArrayList<>();
+            ClipData clipData = data.getClipData();
+            if (clipData != null) {
+                for (int i = 0; i < clipData.getItemCount(); i++) {
+                    uris.add(clipData.getItemAt(i).getUri());
+                }
+            } else if (data.getData() != null) {
+                uris.add(data.getData());
+            }
+            if (!uris.isEmpty()) {
+                classifyBatch(uris);
+            }
+            return;
+        }
         if (requestCode == REQUEST_IMAGE_CAPTURE && resultCode == RESULT_OK) {
-            if (data != null && data.getExtras() != null) {
+            if (currentPhotoPath != null && new File(currentPhotoPath).length() > 0) {
+                classifyPhoto(currentPhotoPath);
+            } else if (data != null && data.getExtras() != null) {
                 Bitmap imageBitmap = (Bitmap) data.getExtras().get("data");
                 if (imageBitmap != null) {
                     imageView.setImageBitmap(imageBitmap);
+                    viewModel.showBitmap(imageBitmap);
                     classifyImage(imageBitmap);
                 }
             }
         }
     }
+
     private void classifyImage(Bitmap bitmap) {
-        try {
-            if (tflite == null) {
-                Toast.makeText(this, "Modelo no inicializado", Toast.LENGTH_SHORT).show();
-                return;
-            }
+        if (viewModel.getInferenceExecutor() == null) {
+            Toast.makeText(this, "Modelo no inicializado", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-            Bitmap scaledBitmap = Bitmap.createScaledBitmap(bitmap, MODEL_INPUT_SIZE, MODEL_INPUT_SIZE, false);
-            ByteBuffer inputBuffer = createInputBuffer(scaledBitmap);
+        clearRegions();
+        viewModel.classifyImage(bitmap);
+    }
 
-            // Obtener especificaciones del tensor de salida
-            Tensor outputTensor = tflite.getOutputTensor(0);
-            DataType outputDataType = outputTensor.dataType();
-            Log.d("ModelSpecs", "Formato de salida: " + outputDataType.toString());
+    private void classifyPhoto(String photoPath) {
+        if (viewModel.getInferenceExecutor() == null) {
+            Toast.makeText(this, "Modelo no inicializado", Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-            // Buffer de salida según el tipo de dato
-            if (outputDataType == DataType.UINT8) {
-                byte[][] output = new byte[1][6]; // Ajusta según tu modelo
-                tflite.run(inputBuffer, output);
-                processResults(output[0]);
-            } else {
-                float[][] output = new float[1][6];
-                tflite.run(inputBuffer, output);
-                processResults(output[0]);
-            }
+        clearRegions();
+        viewModel.classifyPhoto(photoPath);
+    }
 
-        } catch (Exception e) {
-            Log.e("Classification", "Error: ", e);
-            runOnUiThread(() -> Toast.makeText(this,
-                    "Error en clasificación: " + e.getMessage(),
-                    Toast.LENGTH_LONG).show());
+    // Analiza la última foto por zonas: varios objetos en una misma captura
+    private void classifyTiles() {
+        if (viewModel.getInferenceExecutor() == null) {
+            Toast.makeText(this, "Modelo no inicializado", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (currentPhotoPath == null || !new File(currentPhotoPath).exists()
+                || viewModel.getDisplayedBitmap() == null) {
+            Toast.makeText(this, "Primero toma una foto", Toast.LENGTH_SHORT).show();
+            return;
         }
+        stopLiveMode();
+        resultTextView.setText("Analizando por zonas...");
+        viewModel.classifyTiles(currentPhotoPath);
     }
 
-    private ByteBuffer createInputBuffer(Bitmap bitmap) {
-        // Determinar bytes por canal según el tipo de dato de entrada
-        int bytesPerChannel = inputDataType == DataType.FLOAT32 ? 4 : 1;
-        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(
-                MODEL_INPUT_SIZE * MODEL_INPUT_SIZE * 3 * bytesPerChannel
-        );
-        inputBuffer.order(ByteOrder.nativeOrder());
-
-        int[] pixels = new int[MODEL_INPUT_SIZE * MODEL_INPUT_SIZE];
-        bitmap.getPixels(pixels, 0, MODEL_INPUT_SIZE, 0, 0, MODEL_INPUT_SIZE, MODEL_INPUT_SIZE);
-
-        // Llenar el buffer según el tipo de dato
-        for (int pixel : pixels) {
-            if (inputDataType == DataType.FLOAT32) {
-                // Normalizar valores a float [0,1]
-                inputBuffer.putFloat(((pixel >> 16) & 0xFF) / 255.0f); // R
-                inputBuffer.putFloat(((pixel >> 8) & 0xFF) / 255.0f);  // G
-                inputBuffer.putFloat((pixel & 0xFF) / 255.0f);         // B
-            } else {
-                // Usar valores byte [0,255]
-                inputBuffer.put((byte) ((pixel >> 16) & 0xFF)); // R
-                inputBuffer.put((byte) ((pixel >> 8) & 0xFF));  // G
-                inputBuffer.put((byte) (pixel & 0xFF));         // B
+    private void processResults(float[] results, boolean awardPoints) {
+        long resultsStart = System.nanoTime();
+        int verdict = postprocessor.decide(results);
+        float confidence = postprocessor.getConfidence();
+
+        String message;
+        String info;
+        if (verdict == ScorePostprocessor.NOT_SURE) {
+            // Resultado dudoso: no hay veredicto, ni puntos, ni registro en el historial
+            ClassCatalog.Entry notSure = classCatalog.getNotSure();
+            int runnerUp = postprocessor.getRunnerUpIndex();
+            message = notSure.getMessage();
+            info = "Podría ser " + classCatalog.getLabel(postprocessor.getBestIndex()).toLowerCase(Locale.ROOT)
+                    + (runnerUp >= 0 ? " o " + classCatalog.getLabel(runnerUp).toLowerCase(Locale.ROOT) : "")
+                    + ". " + notSure.getInfo();
+        } else {
+            ClassCatalog.Entry entry = classCatalog.get(verdict);
+            message = entry.getMessage();
+            info = entry.getInfo();
+            if (awardPoints) {
+                // Historial local y cola de subida; ninguno escribe en el hilo principal
+                ScanHistoryStore.getInstance(this).recordScan(entry.getLabel(), confidence, entry.getPoints());
+                ScanSyncUploader.getInstance(this).record(entry.getLabel(), confidence);
+                viewModel.addPoints(entry.getPoints());
+                // Solo fotos: en vivo la imagen mostrada no es la del frame clasificado
+                if (liveFrameAnalyzer == null) {
+                    offerTrainingSample(entry.getLabel(), confidence);
+                }
             }
         }
 
-        return inputBuffer;
+        showResult(message, info);
+        metrics.record(PipelineMetrics.Stage.RESULTS, resultsStart);
+        viewModel.speak(ScanViewModel.speechText(message, info));
+        updateMetricsOverlay();
     }
 
-    private void processResults(byte[] results) {
-        // Convertir bytes a valores numéricos (0-255)
-        float[] floatResults = new float[results.length];
-        for (int i = 0; i < results.length; i++) {
-            floatResults[i] = (results[i] & 0xFF) / 255.0f;
+    // La primera vez pregunta si se pueden compartir las fotos; después se cambia con pulsación larga en el puntaje
+    private void offerTrainingSample(String label, float confidence) {
+        TrainingSampleCollector collector = TrainingSampleCollector.getInstance(this);
+        if (!collector.shouldAsk()) {
+            collector.offer(viewModel.getDisplayedBitmap(), label, confidence);
+            return;
         }
-        processResults(floatResults);
+        new MaterialAlertDialogBuilder(this)
+                .setTitle("Ayúdanos a mejorar EcoVision")
+                .setMessage("¿Compartir tus fotos reducidas y la clasificación obtenida para entrenar el modelo?"
+                        + " Solo se envían por wifi y puedes desactivarlo manteniendo pulsado el puntaje.")
+                .setCancelable(false)
+                .setPositiveButton("Compartir", (dialog, which) -> {
+                    collector.setEnabled(true);
+                    collector.offer(viewModel.getDisplayedBitmap(), label, confidence);
+                })
+                .setNegativeButton("No, gracias", (dialog, which) -> collector.setEnabled(false))
+                .show();
     }
 
-    private void processResults(float[] results) {
-        String[] labels = {"Plástico", "Papel", "Vidrio", "Metal", "Carton", "Basura"};
-        int maxIndex = 0;
-        for (int i = 0; i < results.length; i++) {
-            if (results[i] > results[maxIndex]) maxIndex = i;
-        }
+    private void toggleTrainingSamples() {
+        TrainingSampleCollector collector = TrainingSampleCollector.getInstance(this);
+        boolean enabled = !collector.isEnabled();
+        collector.setEnabled(enabled);
+        Toast.makeText(this, enabled ? "Compartir fotos para mejorar el modelo: activado"
+                : "Compartir fotos desactivado; se borraron las pendientes", Toast.LENGTH_SHORT).show();
+    }
 
-        String message;
-        String info;
-        switch (labels[maxIndex]) {
-            case "Plástico":
-                message = "Depositar en el contenedor amarillo";
-                info = "El plástico es un material reciclable usado en envases y botellas. Se recomienda limpiarlo antes de desecharlo.";
-                incrementScore();
-                break;
-            case "Papel":
-                message = "Depositar en el Contenedor azul";
-                info = "El papel se recicla para fabricar nuevos productos como libretas y cartón. Evita mezclarlo con materiales húmedos.";
-                incrementScore();
-                break;
-            case "Vidrio":
-                message = "Depositar en el Contenedor verde";
-                info = "El vidrio puede reciclarse muchas veces sin perder calidad. Se recomienda enjuagar antes de desechar.";
-                incrementScore();
-                break;
-            case "Metal":
-                message = "Depositar en el Contenedor gris";
-                info = "El metal, como las latas de aluminio, se recicla para fabricar nuevos envases y productos metálicos.";
-                incrementScore();
-                break;
-
-            case "Carton":
-                message = "Depositar en el Contenedor azul";
-                info = "El cartón reciclado se usa para crear empaques y cajas. Asegúrate de que no esté contaminado con grasa o líquidos.";
-                incrementScore();
-                break;
-            case "Basura":
-                message = "Depositar en el Contenedor gris 🗑";
-                info = "Residuos no reciclables como servilletas sucias o productos mixtos. Considera reducir su uso.";
-                break;
-            default:
-                message = "No reciclable ❌";
-                info = "Este objeto no se puede reciclar. Intenta reutilizarlo o reducir su uso en el futuro.";
-                break;
+    private void updateMetricsOverlay() {
+        if (metricsOverlay != null && metricsOverlay.getVisibility() == View.VISIBLE) {
+            metricsOverlay.setText(metrics.formatSummary() + "\n" + BitmapPool.getInstance().formatSummary()
+                    + "\n" + RetrofitClient.getNetworkMetrics().formatSummary()
+                    + "\nritmo: nivel " + viewModel.getScheduler().getSettings().getLevel() + ", "
+                    + viewModel.getScheduler().getSettings());
         }
-
-        resultTextView.setText(message);
-        infoTextView.setVisibility(View.VISIBLE);
-        infoTextView.setText(info);
-        speakMessage(message + ". " + info);
     }
 
-    private void incrementScore() {
-        score += 10; // Aumentar 10 puntos por reciclaje correcto
-        updateScore();
+    private void exportMetrics() {
+        InferenceExecutor inferenceExecutor = viewModel.getInferenceExecutor();
+        String model = inferenceExecutor != null
+                ? "v" + ModelHolder.getInstance().getModelVersion() + " " + inferenceExecutor.getModelSpec()
+                : "sin cargar";
+        File directory = new File(getExternalFilesDir(null), "metricas");
+        new Thread(() -> {
+            try {
+                File dump = metrics.writeDump(directory, model);
+                runOnUiThread(() -> Toast.makeText(this, "Latencias en " + dump.getAbsolutePath(),
+                        Toast.LENGTH_LONG).show());
+            } catch (IOException e) {
+                Log.e("Metrics", "Error exportando latencias", e);
+            }
+        }, "ecovision-metricas").start();
     }
 
     private void updateScore() {
-        if (scoreTextView != null) {
-            scoreTextView.setText("Puntaje: " + score);
-        }
+        if (scoreTextView == null) return;
+        ScanHistoryStore.Summary summary = viewModel.getSummary();
+        int streak = summary != null ? summary.getStreakDays() : 0;
+        scoreTextView.setText("Puntaje: " + viewModel.getScore()
+                + (streak > 0 ? " · Racha: " + streak + (streak == 1 ? " día" : " días") : ""));
     }
 
-    private void speakMessage(String message) {
-        if (textToSpeech != null) {
-            textToSpeech.speak(message, TextToSpeech.QUEUE_FLUSH, null, null);
-            textToSpeech.setSpeechRate(0.9f);
-            textToSpeech.setPitch(1.1f);
+    // Toque en el puntaje: escaneos totales y reparto por material
+    private void showSummary() {
+        ScanHistoryStore.Summary summary = viewModel.getSummary();
+        if (summary == null) return;
+        StringBuilder text = new StringBuilder()
+                .append(summary.getTotalScans()).append(" escaneos");
+        for (Map.Entry<String, Integer> total : summary.getTotalsPerMaterial().entrySet()) {
+            text.append('\n').append(total.getKey()).append(": ").append(total.getValue());
         }
+        Toast.makeText(this, text, Toast.LENGTH_LONG).show();
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_PHOTO_PATH, currentPhotoPath);
     }
 
+    // El ViewModel libera ejecutor, clasificadores y voz cuando la actividad termina de verdad
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (textToSpeech != null) {
-            textToSpeech.stop();
-            textToSpeech.shutdown();
-        }
+        viewModel.detach(host);
+        stopLiveMode();
     }
 
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
-        if (requestCode == REQUEST_CAMERA_PERMISSION && grantResults.length > 0
-                && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+        if (grantResults.length == 0 || grantResults[0] != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        if (requestCode == REQUEST_CAMERA_PERMISSION) {
             openCamera();
+        } else if (requestCode == REQUEST_LIVE_CAMERA_PERMISSION) {
+            startLiveMode();
         }
     }
 }
\ No newline at end of file
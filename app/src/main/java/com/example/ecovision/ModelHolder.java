@@ -0,0 +1,358 @@
+package com.example.ecovision;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+public class ModelHolder {
+
+    public interface Listener {
+        void onModelReady(Interpreter interpreter);
+
+        void onModelError(Exception e);
+
+        // Mismo modelo recreado con otro número de hilos. Quien usaba previous pasa a next y llama a
+        // release cuando ya no lo toca; previous se cierra cuando todos lo soltaron. Por defecto se
+        // trata como un cambio de modelo.
+        default void onInterpreterReplaced(Interpreter previous, Interpreter next, Runnable release) {
+            onModelReady(next);
+            release.run();
+        }
+    }
+
+    private static final String TAG = "ModelHolder";
+    private static final String MODEL_ASSET = "model.tflite";
+    private static final String MODELS_DIRECTORY = "modelos";
+    private static final String MANIFEST_URL = "https://ecovision.bsite.net/api/Modelos/Ultimo";
+
+    private static ModelHolder instance;
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "ecovision-modelo"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Protegidos por this. Los suscriptores siguen registrados hasta removeListener
+    // y reciben de nuevo onModelReady cada vez que se cambia de modelo.
+    private final List<Listener> listeners = new ArrayList<>();
+    private boolean loadStarted;
+    private Interpreter interpreter;
+    private Exception loadError;
+    private ModelRegistry registry;
+    private volatile int modelVersion = ModelRegistry.BUNDLED_VERSION;
+    // Tope de hilos del planificador adaptativo (0 sin tope) y hilos del intérprete activo
+    private int threadLimit;
+    private int tunedThreads;
+    private int activeThreads;
+
+    private volatile long coldStartMs;
+    private volatile long firstInferenceMs;
+
+    public static synchronized ModelHolder getInstance() {
+        if (instance == null) {
+            instance = new ModelHolder();
+        }
+        return instance;
+    }
+
+    // Arranca la carga en segundo plano; llamadas repetidas no vuelven a cargar el modelo
+    public synchronized void preload(Context context) {
+        if (loadStarted) return;
+        loadStarted = true;
+        Context appContext = context.getApplicationContext();
+        loader.execute(() -> load(appContext));
+    }
+
+    // Entrega el intérprete en el hilo principal, de inmediato si ya está listo, y otra vez tras cada cambio de modelo
+    public void getInterpreter(Context context, Listener listener) {
+        preload(context);
+        boolean ready;
+        synchronized (this) {
+            if (!listeners.contains(listener)) {
+                listeners.add(listener);
+            }
+            ready = interpreter != null || loadError != null;
+        }
+        if (ready) {
+            mainHandler.post(() -> deliver(listener));
+        }
+    }
+
+    // Evita retener una actividad destruida
+    public synchronized void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Consulta el backend tras la carga inicial; si hay una versión nueva la instala y la activa en caliente
+    public void checkForUpdates(Context context) {
+        Context appContext = context.getApplicationContext();
+        preload(appContext);
+        loader.execute(() -> {
+            ModelRegistry modelRegistry = getRegistry(appContext);
+            try {
+                int before = modelRegistry.getActiveVersion();
+                int installed = modelRegistry.checkForUpdate();
+                if (installed == before) return;
+                swap(createInterpreter(appContext));
+            } catch (Exception e) {
+                Log.w(TAG, "No se pudo actualizar el modelo", e);
+            }
+        });
+    }
+
+    // Vuelve a la versión anterior del modelo (o a la del APK) sin reiniciar la app
+    public void rollback(Context context) {
+        Context appContext = context.getApplicationContext();
+        preload(appContext);
+        loader.execute(() -> {
+            getRegistry(appContext).rollback();
+            try {
+                swap(createInterpreter(appContext));
+            } catch (Exception e) {
+                Log.e(TAG, "Error cargando el modelo tras el rollback", e);
+            }
+        });
+    }
+
+    // Recrea el intérprete con menos (o más) hilos y lo cambia en caliente sin que los suscriptores
+    // descarten su ejecutor, la caché ni un lote en curso. Devuelve false si el número de hilos
+    // efectivo no cambia y no hace falta recrearlo.
+    public boolean limitThreads(Context context, int maxThreads) {
+        Context appContext = context.getApplicationContext();
+        synchronized (this) {
+            threadLimit = maxThreads;
+            // Si aún está cargando, la carga en curso ya aplica el tope
+            if (interpreter == null || effectiveThreads(tunedThreads) == activeThreads) {
+                return false;
+            }
+        }
+        loader.execute(() -> {
+            try {
+                replaceInPlace(createInterpreter(appContext));
+            } catch (Exception e) {
+                Log.e(TAG, "Error recreando el intérprete con " + maxThreads + " hilos", e);
+            }
+        });
+        return true;
+    }
+
+    private synchronized int effectiveThreads(int tuned) {
+        return threadLimit == 0 ? tuned : Math.min(tuned, threadLimit);
+    }
+
+    public int getModelVersion() {
+        return modelVersion;
+    }
+
+    private void load(Context context) {
+        try {
+            Interpreter loaded = createInterpreter(context);
+            synchronized (this) {
+                interpreter = loaded;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error carga modelo", e);
+            synchronized (this) {
+                loadError = e;
+            }
+        }
+        notifyListeners();
+    }
+
+    // Usa el modelo descargado activo; si no carga, vuelve atrás hasta llegar al del APK
+    private Interpreter createInterpreter(Context context) throws Exception {
+        ModelRegistry modelRegistry = getRegistry(context);
+        while (true) {
+            File file = modelRegistry.getActiveModelFile();
+            if (file == null) {
+                Interpreter bundled = createInterpreter(context, Utils.loadModelFile(context, MODEL_ASSET),
+                        bundledModelId(context));
+                modelVersion = ModelRegistry.BUNDLED_VERSION;
+                return bundled;
+            }
+            try {
+                Interpreter downloaded = createInterpreter(context, Utils.loadModelFile(file),
+                        "v" + modelRegistry.getActiveVersion());
+                modelVersion = modelRegistry.getActiveVersion();
+                return downloaded;
+            } catch (Exception e) {
+                Log.e(TAG, "El modelo " + file.getName() + " no es válido", e);
+                modelRegistry.rollback();
+            }
+        }
+    }
+
+    // Las versiones descargadas no se reutilizan; el modelo del APK puede cambiar con cada instalación
+    private static String bundledModelId(Context context) {
+        try {
+            return "v" + ModelRegistry.BUNDLED_VERSION + "-apk"
+                    + context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return "v" + ModelRegistry.BUNDLED_VERSION;
+        }
+    }
+
+    private Interpreter createInterpreter(Context context, MappedByteBuffer model, String modelId) {
+        // En el primer arranque de cada modelo mide hilos y XNNPACK; después reutiliza la configuración guardada
+        DelegateTuner.CpuConfig tuned = new DelegateTuner(context).loadOrTune(model, modelId);
+        int threads = effectiveThreads(tuned.getNumThreads());
+        DelegateTuner.CpuConfig cpuConfig = threads == tuned.getNumThreads()
+                ? tuned : new DelegateTuner.CpuConfig(threads, tuned.isUseXnnpack());
+        synchronized (this) {
+            tunedThreads = tuned.getNumThreads();
+            activeThreads = threads;
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        Interpreter loaded = new Interpreter(model, cpuConfig.toOptions());
+        coldStartMs = SystemClock.elapsedRealtime() - start;
+
+        try {
+            // Rechaza modelos con tensores que la app no sabe alimentar
+            ModelSpec.fromInterpreter(loaded);
+            // Inferencia de calentamiento: reserva tensores y prepara los kernels antes del primer escaneo
+            start = SystemClock.elapsedRealtime();
+            warmUp(loaded);
+            firstInferenceMs = SystemClock.elapsedRealtime() - start;
+        } catch (RuntimeException e) {
+            loaded.close();
+            throw e;
+        }
+        Log.i(TAG, "Modelo listo (" + cpuConfig + ") | carga: " + coldStartMs + " ms | primera inferencia: "
+                + firstInferenceMs + " ms");
+        return loaded;
+    }
+
+    // Publica el nuevo intérprete; el anterior se cierra cuando los suscriptores ya lo soltaron
+    private void swap(Interpreter next) {
+        Interpreter previous;
+        synchronized (this) {
+            previous = interpreter;
+            interpreter = next;
+            loadError = null;
+        }
+        notifyListeners();
+        if (previous != null && previous != next) {
+            // Las entregas ya están encoladas en el hilo principal; esto corre después de todas ellas.
+            // El bloqueo espera a que termine una inferencia en curso con el intérprete anterior.
+            mainHandler.post(() -> loader.execute(() -> {
+                synchronized (previous) {
+                    previous.close();
+                }
+            }));
+        }
+    }
+
+    private void replaceInPlace(Interpreter next) {
+        Interpreter previous;
+        List<Listener> subscribers;
+        synchronized (this) {
+            previous = interpreter;
+            interpreter = next;
+            loadError = null;
+            subscribers = new ArrayList<>(listeners);
+        }
+        if (previous == null) {
+            notifyListeners();
+            return;
+        }
+        // Una referencia por suscriptor y otra propia, que se suelta al terminar de repartir
+        AtomicInteger holders = new AtomicInteger(subscribers.size() + 1);
+        Runnable release = () -> {
+            if (holders.decrementAndGet() == 0) {
+                loader.execute(() -> {
+                    synchronized (previous) {
+                        previous.close();
+                    }
+                });
+            }
+        };
+        for (Listener listener : subscribers) {
+            mainHandler.post(() -> {
+                boolean subscribed;
+                synchronized (this) {
+                    subscribed = listeners.contains(listener);
+                }
+                if (subscribed) {
+                    listener.onInterpreterReplaced(previous, next, release);
+                } else {
+                    release.run();
+                }
+            });
+        }
+        release.run();
+    }
+
+    private synchronized ModelRegistry getRegistry(Context context) {
+        if (registry == null) {
+            // Mismo pool e interceptores, sin tope total: un modelo grande puede tardar más que una llamada a la API
+            OkHttpClient downloadClient = RetrofitClient.getBackgroundHttpClient().newBuilder()
+                    .callTimeout(0, TimeUnit.SECONDS)
+                    .build();
+            registry = new ModelRegistry(new File(context.getFilesDir(), MODELS_DIRECTORY),
+                    downloadClient, MANIFEST_URL);
+        }
+        return registry;
+    }
+
+    private static void warmUp(Interpreter interpreter) {
+        ByteBuffer input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes());
+        input.order(ByteOrder.nativeOrder());
+        ByteBuffer output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes());
+        output.order(ByteOrder.nativeOrder());
+        synchronized (interpreter) {
+            interpreter.run(input, output);
+        }
+    }
+
+    private void notifyListeners() {
+        final List<Listener> subscribers;
+        synchronized (this) {
+            subscribers = new ArrayList<>(listeners);
+        }
+        for (Listener listener : subscribers) {
+            mainHandler.post(() -> deliver(listener));
+        }
+    }
+
+    private void deliver(Listener listener) {
+        Interpreter ready;
+        Exception error;
+        synchronized (this) {
+            // Se quitó mientras la entrega estaba encolada
+            if (!listeners.contains(listener)) return;
+            ready = interpreter;
+            error = loadError;
+        }
+        if (ready != null) {
+            listener.onModelReady(ready);
+        } else {
+            listener.onModelError(error);
+        }
+    }
+
+    public long getColdStartMs() {
+        return coldStartMs;
+    }
+
+    public long getFirstInferenceMs() {
+        return firstInferenceMs;
+    }
+}
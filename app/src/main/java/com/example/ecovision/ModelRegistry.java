@@ -0,0 +1,241 @@
+package com.example.ecovision;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// Modelos descargados del backend, verificados por SHA-256 y guardados junto a la versión anterior.
+// La versión 0 es el modelo incluido en el APK y siempre queda como respaldo.
+public class ModelRegistry {
+
+    public static final int BUNDLED_VERSION = 0;
+
+    // Respuesta del backend con la última versión publicada
+    static class Manifest {
+        @SerializedName("version")
+        int version;
+        @SerializedName("url")
+        String url;
+        @SerializedName("sha256")
+        String sha256;
+    }
+
+    // Estado persistido: versión activa, la anterior para poder volver atrás y la más alta que se
+    // descartó (rollback o modelo que no cargó), para no volver a instalarla en cada arranque
+    private static class State {
+        @SerializedName("activa")
+        int active = BUNDLED_VERSION;
+        @SerializedName("anterior")
+        int previous = BUNDLED_VERSION;
+        @SerializedName("rechazada")
+        int rejected = BUNDLED_VERSION;
+    }
+
+    private static final String TAG = "ModelRegistry";
+    private static final String STATE_FILE = "registro.json";
+
+    private final File directory;
+    private final OkHttpClient httpClient;
+    private final String manifestUrl;
+    private final Gson gson = new Gson();
+
+    public ModelRegistry(File directory, OkHttpClient httpClient, String manifestUrl) {
+        this.directory = directory;
+        this.httpClient = httpClient;
+        this.manifestUrl = manifestUrl;
+    }
+
+    public synchronized int getActiveVersion() {
+        return readState().active;
+    }
+
+    // Archivo del modelo activo, o null si se usa el del APK
+    public synchronized File getActiveModelFile() {
+        int active = readState().active;
+        if (active == BUNDLED_VERSION) return null;
+        File file = modelFile(active);
+        return file.isFile() ? file : null;
+    }
+
+    // Descarga e instala una versión más nueva si la hay; devuelve la versión activa resultante.
+    // No hace nada si el backend publica la misma versión, una anterior o una ya descartada.
+    public int checkForUpdate() throws IOException {
+        Manifest manifest = fetchManifest();
+        synchronized (this) {
+            State state = readState();
+            if (manifest.version <= Math.max(state.active, state.rejected)) {
+                return state.active;
+            }
+        }
+
+        HttpUrl modelUrl = HttpUrl.get(manifestUrl).resolve(manifest.url);
+        if (modelUrl == null) {
+            throw new IOException("URL de modelo inválida: " + manifest.url);
+        }
+        File target = modelFile(manifest.version);
+        download(modelUrl, manifest.sha256, target);
+
+        synchronized (this) {
+            State state = readState();
+            state.previous = state.active;
+            state.active = manifest.version;
+            writeState(state);
+            deleteUnused(state);
+            Log.i(TAG, "Modelo " + manifest.version + " instalado (anterior: " + state.previous + ")");
+            return state.active;
+        }
+    }
+
+    // Vuelve a la versión anterior (o al modelo del APK) y descarta la activa; esa versión y las
+    // anteriores ya no se instalan aunque el backend las siga publicando
+    public synchronized int rollback() {
+        State state = readState();
+        int discarded = state.active;
+        state.rejected = Math.max(state.rejected, discarded);
+        state.active = state.previous;
+        state.previous = BUNDLED_VERSION;
+        if (state.active != BUNDLED_VERSION && !modelFile(state.active).isFile()) {
+            state.active = BUNDLED_VERSION;
+        }
+        writeState(state);
+        if (discarded != BUNDLED_VERSION) {
+            modelFile(discarded).delete();
+        }
+        Log.w(TAG, "Rollback del modelo " + discarded + " a " + state.active);
+        return state.active;
+    }
+
+    private Manifest fetchManifest() throws IOException {
+        Request request = new Request.Builder().url(manifestUrl).get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code() + " al consultar el manifiesto");
+            }
+            Manifest manifest = gson.fromJson(body.charStream(), Manifest.class);
+            if (manifest == null || manifest.url == null || manifest.sha256 == null) {
+                throw new IOException("Manifiesto incompleto");
+            }
+            return manifest;
+        }
+    }
+
+    // Se descarga a un temporal calculando el hash en el mismo paso; solo se renombra si coincide
+    private void download(HttpUrl url, String expectedSha256, File target) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        File temporary = new File(directory, target.getName() + ".tmp");
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code() + " al descargar el modelo");
+            }
+            MessageDigest digest = sha256();
+            try (InputStream input = new DigestInputStream(body.byteStream(), digest);
+                 OutputStream output = new FileOutputStream(temporary)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                }
+            }
+            String actual = toHex(digest.digest());
+            if (!actual.equalsIgnoreCase(expectedSha256)) {
+                throw new IOException("Checksum no coincide: esperado " + expectedSha256 + ", recibido " + actual);
+            }
+            if (!temporary.renameTo(target)) {
+                throw new IOException("No se pudo guardar " + target);
+            }
+        } finally {
+            temporary.delete();
+        }
+    }
+
+    // Solo se conservan la versión activa y la anterior
+    private void deleteUnused(State state) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.equals(STATE_FILE)) continue;
+            if (!name.equals(modelFile(state.active).getName())
+                    && !name.equals(modelFile(state.previous).getName())) {
+                file.delete();
+            }
+        }
+    }
+
+    private File modelFile(int version) {
+        return new File(directory, "model-" + version + ".tflite");
+    }
+
+    private State readState() {
+        File file = new File(directory, STATE_FILE);
+        if (!file.isFile()) return new State();
+        try (Reader reader = new FileReader(file)) {
+            State state = gson.fromJson(reader, State.class);
+            return state != null ? state : new State();
+        } catch (Exception e) {
+            Log.w(TAG, "Estado del registro ilegible, se usa el modelo del APK", e);
+            return new State();
+        }
+    }
+
+    // Escritura atómica: un corte a mitad nunca deja el registro apuntando a nada
+    private void writeState(State state) {
+        File file = new File(directory, STATE_FILE);
+        File temporary = new File(directory, STATE_FILE + ".tmp");
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("No se pudo crear " + directory);
+            }
+            try (Writer writer = new FileWriter(temporary)) {
+                gson.toJson(state, writer);
+            }
+            if (!temporary.renameTo(file)) {
+                throw new IOException("No se pudo guardar " + file);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error guardando el estado del registro", e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.ecovision;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.util.Arrays;
+
+public class ModelSpec {
+
+    private final int inputSize;
+    private final DataType inputDataType;
+    private final int numClasses;
+    private final DataType outputDataType;
+    private final float outputScale;
+    private final int outputZeroPoint;
+
+    public ModelSpec(int inputSize, DataType inputDataType, int numClasses,
+                     DataType outputDataType, float outputScale, int outputZeroPoint) {
+        this.inputSize = inputSize;
+        this.inputDataType = inputDataType;
+        this.numClasses = numClasses;
+        this.outputDataType = outputDataType;
+        this.outputScale = outputScale;
+        this.outputZeroPoint = outputZeroPoint;
+    }
+
+    // Lee forma, tipo y cuantización de los tensores una sola vez al cargar el modelo
+    public static ModelSpec fromInterpreter(Interpreter interpreter) {
+        Tensor inputTensor = interpreter.getInputTensor(0);
+        int[] inputShape = inputTensor.shape();
+        if (inputShape.length != 4 || inputShape[1] != inputShape[2] || inputShape[3] != 3) {
+            throw new IllegalArgumentException("Entrada no soportada (se espera [1, N, N, 3]): "
+                    + Arrays.toString(inputShape));
+        }
+
+        Tensor outputTensor = interpreter.getOutputTensor(0);
+        int[] outputShape = outputTensor.shape();
+        if (outputShape.length != 2) {
+            throw new IllegalArgumentException("Salida no soportada (se espera [1, clases]): "
+                    + Arrays.toString(outputShape));
+        }
+
+        Tensor.QuantizationParams quantization = outputTensor.quantizationParams();
+        return new ModelSpec(inputShape[1], inputTensor.dataType(), outputShape[1],
+                outputTensor.dataType(), quantization.getScale(), quantization.getZeroPoint());
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public DataType getInputDataType() {
+        return inputDataType;
+    }
+
+    public boolean isFloatInput() {
+        return inputDataType == DataType.FLOAT32;
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public DataType getOutputDataType() {
+        return outputDataType;
+    }
+
+    public boolean isQuantizedOutput() {
+        return outputDataType == DataType.UINT8 || outputDataType == DataType.INT8;
+    }
+
+    // Convierte un valor cuantizado (ya leído como int) a confianza real: scale * (q - zeroPoint)
+    public float dequantize(int quantized) {
+        if (outputScale == 0f) {
+            // Modelo sin parámetros de cuantización: se asume el rango completo [0, 255]
+            return (quantized - outputZeroPoint) / 255.0f;
+        }
+        return outputScale * (quantized - outputZeroPoint);
+    }
+
+    @Override
+    public String toString() {
+        return "entrada " + inputDataType + " [1, " + inputSize + ", " + inputSize + ", 3]"
+                + " | salida " + outputDataType + " [1, " + numClasses + "]"
+                + " | escala " + outputScale + " | punto cero " + outputZeroPoint;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ecovision;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+// Latencia de extremo a extremo (con reintentos) y tasas de fallo de las llamadas al backend
+public class NetworkMetrics implements Interceptor {
+
+    private static final int WINDOW_SIZE = 256;
+
+    private final LatencyHistogram latency = new LatencyHistogram(WINDOW_SIZE);
+    private final AtomicLong requests = new AtomicLong();
+    // Respuestas 5xx o errores de red tras agotar los reintentos
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    // Rechazadas sin red porque el circuito estaba abierto
+    private final AtomicLong shortCircuited = new AtomicLong();
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        long start = System.nanoTime();
+        requests.incrementAndGet();
+        try {
+            Response response = chain.proceed(chain.request());
+            if (response.code() >= 500) {
+                failures.incrementAndGet();
+            }
+            return response;
+        } catch (ServerUnavailableException e) {
+            shortCircuited.incrementAndGet();
+            throw e;
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            latency.record((System.nanoTime() - start) / 1000);
+        }
+    }
+
+    void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    public LatencyHistogram.Snapshot latencySnapshot() {
+        return latency.snapshot();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getShortCircuited() {
+        return shortCircuited.get();
+    }
+
+    public float getFailureRate() {
+        long total = requests.get();
+        return total == 0 ? 0f : (failures.get() + shortCircuited.get()) / (float) total;
+    }
+
+    // Una línea para el overlay de depuración
+    public String formatSummary() {
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        return String.format(Locale.US, "red: p50 %.0f / p95 %.0f ms, %d llamadas, %.0f%% fallos, %d reintentos, %d cortadas",
+                snapshot.getP50Micros() / 1000f, snapshot.getP95Micros() / 1000f, requests.get(),
+                getFailureRate() * 100, retries.get(), shortCircuited.get());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.ecovision;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.SystemClock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PerceptualHashCache {
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+
+    private final int maxEntries;
+    private final int maxDistance;
+    private final long maxAgeMs;
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<Long, Entry> entries;
+    private final int[] hashPixels = new int[HASH_WIDTH * HASH_HEIGHT];
+    private final Rect hashBounds = new Rect(0, 0, HASH_WIDTH, HASH_HEIGHT);
+    private final Paint filterPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static final class Entry {
+        final float[] scores;
+        final long storedAtMs;
+
+        Entry(float[] scores, long storedAtMs) {
+            this.scores = scores;
+            this.storedAtMs = storedAtMs;
+        }
+    }
+
+    // Un resultado solo vale si se guardó hace menos de maxAgeMs, con hash idéntico o cercano:
+    // dos objetos distintos pueden dar el mismo dHash de 64 bits
+    public PerceptualHashCache(int maxEntries, int maxDistance, long maxAgeMs) {
+        this.maxEntries = maxEntries;
+        this.maxDistance = maxDistance;
+        this.maxAgeMs = maxAgeMs;
+        this.entries = new LinkedHashMap<Long, Entry>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > PerceptualHashCache.this.maxEntries;
+            }
+        };
+    }
+
+    // dHash de 64 bits: reduce a 9x8 con filtrado (promedio por zonas) y compara vecinos horizontales
+    public synchronized long hash(Bitmap bitmap) {
+        // Misma reducción filtrada que createScaledBitmap, sobre un bitmap del pool
+        BitmapPool pool = BitmapPool.getInstance();
+        Bitmap small = pool.get(HASH_WIDTH, HASH_HEIGHT, Bitmap.Config.ARGB_8888);
+        try {
+            small.eraseColor(Color.TRANSPARENT);
+            new Canvas(small).drawBitmap(bitmap, null, hashBounds, filterPaint);
+            small.getPixels(hashPixels, 0, HASH_WIDTH, 0, 0, HASH_WIDTH, HASH_HEIGHT);
+        } finally {
+            pool.put(small);
+        }
+        return differenceHash(hashPixels);
+    }
+
+    // Recibe los 9x8 píxeles ARGB ya reducidos
+    public static long differenceHash(int[] pixels) {
+        long hash = 0;
+        int bit = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            int row = y * HASH_WIDTH;
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                if (luminance(pixels[row + x]) < luminance(pixels[row + x + 1])) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    private static int luminance(int pixel) {
+        // Aproximación entera de 0.299 R + 0.587 G + 0.114 B
+        return (((pixel >> 16) & 0xFF) * 77 + ((pixel >> 8) & 0xFF) * 150 + (pixel & 0xFF) * 29) >> 8;
+    }
+
+    // Devuelve el resultado reciente de la misma imagen o de una casi idéntica, o null.
+    // Objetos distintos sobre el mismo fondo dan hashes cercanos: la distancia sola no basta
+    public synchronized float[] lookup(long hash) {
+        long now = SystemClock.elapsedRealtime();
+        // Los caducados no vuelven a servir: se quitan antes de buscar
+        entries.values().removeIf(entry -> now - entry.storedAtMs > maxAgeMs);
+
+        Entry exact = entries.get(hash);
+        if (exact != null) {
+            hits.incrementAndGet();
+            return exact.scores;
+        }
+
+        Long bestKey = null;
+        int bestDistance = maxDistance + 1;
+        for (long key : entries.keySet()) {
+            int distance = Long.bitCount(key ^ hash);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestKey = key;
+            }
+        }
+        if (bestKey == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        // get() también actualiza el orden LRU
+        return entries.get(bestKey).scores;
+    }
+
+    public synchronized void put(long hash, float[] scores) {
+        entries.put(hash, new Entry(scores, SystemClock.elapsedRealtime()));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
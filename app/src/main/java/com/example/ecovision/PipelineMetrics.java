@@ -0,0 +1,106 @@
+package com.example.ecovision;
+
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class PipelineMetrics {
+
+    // Etapas del camino desde el disparador hasta la voz
+    public enum Stage {
+        DECODE("decodificación"),
+        HASH("hash de caché"),
+        PREPROCESS("preprocesado"),
+        INFERENCE("inferencia"),
+        RESULTS("resultados"),
+        SPEECH("inicio de voz"),
+        CAPTURE_TO_SPEECH("captura a voz");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final int WINDOW_SIZE = 512;
+
+    private static PipelineMetrics instance;
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+
+    public static synchronized PipelineMetrics getInstance() {
+        if (instance == null) {
+            instance = new PipelineMetrics();
+        }
+        return instance;
+    }
+
+    private PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram(WINDOW_SIZE));
+        }
+    }
+
+    // Uso: long start = System.nanoTime(); ... record(Stage.X, start)
+    public void record(Stage stage, long startNanos) {
+        histograms.get(stage).record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    public LatencyHistogram.Snapshot snapshot(Stage stage) {
+        return histograms.get(stage).snapshot();
+    }
+
+    // Texto compacto para el overlay de depuración, en milisegundos
+    public String formatSummary() {
+        StringBuilder text = new StringBuilder("etapa: p50 / p95 / p99 ms (n)\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = snapshot(stage);
+            if (snapshot.getCount() == 0) continue;
+            text.append(String.format(Locale.US, "%s: %.1f / %.1f / %.1f (%d)\n", stage.getLabel(),
+                    snapshot.getP50Micros() / 1000f, snapshot.getP95Micros() / 1000f,
+                    snapshot.getP99Micros() / 1000f, snapshot.getCount()));
+        }
+        return text.toString().trim();
+    }
+
+    // Volcado CSV con el dispositivo y el modelo, para comparar equipos y versiones del modelo
+    public File writeDump(File directory, String modelDescription) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(directory, "latencias-" + stamp + ".csv");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("# dispositivo: " + Build.MANUFACTURER + " " + Build.MODEL
+                    + " (" + Build.HARDWARE + ", API " + Build.VERSION.SDK_INT + ")\n");
+            writer.write("# modelo: " + modelDescription + "\n");
+            writer.write("etapa,muestras,p50_us,p95_us,p99_us,max_us\n");
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram.Snapshot snapshot = snapshot(stage);
+                writer.write(stage.name() + "," + snapshot.getCount() + "," + snapshot.getP50Micros() + ","
+                        + snapshot.getP95Micros() + "," + snapshot.getP99Micros() + ","
+                        + snapshot.getMaxMicros() + "\n");
+            }
+        }
+        return file;
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
@@ -8,21 +8,17 @@ import androidx.appcompat.app.AppCompatActivity; // <-- IMPORTANTE
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
-import org.json.JSONObject;
+import java.io.IOException;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 public class RegisterActivity extends AppCompatActivity { // <-- AÑADIDO AppCompatActivity
     private TextInputEditText etNombres, etApellidos, etEmail, etTelefono, etUsername, etPassword;
     private MaterialButton btnRegister;
 
-    private static final String API_URL = "https://ecovision.bsite.net/api/Cliente/CrearCliente/";
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -52,51 +48,33 @@ public class RegisterActivity extends AppCompatActivity { // <-- AÑADIDO AppCom
             return;
         }
 
-        new Thread(() -> {
-            try {
-                URL url = new URL(API_URL);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json; utf-8");
-                conn.setRequestProperty("Accept", "application/json");
-                conn.setDoOutput(true);
-
-                JSONObject jsonBody = new JSONObject();
-                jsonBody.put("nombres", nombres);
-                jsonBody.put("apellidos", apellidos);
-                jsonBody.put("correo", correo);
-                jsonBody.put("telefono", telefono);
-                jsonBody.put("username", username);
-                jsonBody.put("password", password);
-
-                OutputStream os = conn.getOutputStream();
-                byte[] input = jsonBody.toString().getBytes("utf-8");
-                os.write(input, 0, input.length);
-                os.close();
-
-                int code = conn.getResponseCode();
-                InputStream is = (code == 200) ? conn.getInputStream() : conn.getErrorStream();
-
-                BufferedReader reader = new BufferedReader(new InputStreamReader(is, "utf-8"));
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line.trim());
+        UsuarioModel usuario = new UsuarioModel(0, nombres, apellidos, correo, telefono, username, password);
+        RetrofitClient.getApiService().CrearCliente(usuario).enqueue(new Callback<Void>() {
+            @Override
+            public void onResponse(Call<Void> call, Response<Void> response) {
+                if (response.isSuccessful()) {
+                    Toast.makeText(RegisterActivity.this, "Registro exitoso", Toast.LENGTH_LONG).show();
+                    finish();
+                } else {
+                    Toast.makeText(RegisterActivity.this, "Error al registrar: " + readError(response), Toast.LENGTH_LONG).show();
                 }
+            }
 
-                runOnUiThread(() -> {
-                    if (code == 200) {
-                        Toast.makeText(this, "Registro exitoso", Toast.LENGTH_LONG).show();
-                        finish();
-                    } else {
-                        Toast.makeText(this, "Error al registrar: " + response, Toast.LENGTH_LONG).show();
-                    }
-                });
-
-                conn.disconnect();
-            } catch (Exception e) {
-                runOnUiThread(() -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            @Override
+            public void onFailure(Call<Void> call, Throwable t) {
+                Toast.makeText(RegisterActivity.this, t instanceof ServerUnavailableException
+                        ? "Servidor no disponible, intenta más tarde"
+                        : "Error: " + t.getMessage(), Toast.LENGTH_LONG).show();
             }
-        }).start();
+        });
+    }
+
+    // Retrofit ya deja el cuerpo de error en memoria, leerlo aquí no toca la red
+    private static String readError(Response<?> response) {
+        try (ResponseBody errorBody = response.errorBody()) {
+            return errorBody != null ? errorBody.string() : String.valueOf(response.code());
+        } catch (IOException e) {
+            return String.valueOf(response.code());
+        }
     }
 }
@@ -1,20 +1,98 @@
 package com.example.ecovision;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public class RetrofitClient {
 
-    private static final String BASE_URL = "https://ecovision.bsite.net/api/Cliente/CrearCliente/"; // termina en /
+    private static final String BASE_URL = "https://ecovision.bsite.net/"; // termina en /
+    private static OkHttpClient httpClient = null;
+    private static OkHttpClient backgroundHttpClient = null;
     private static Retrofit retrofit = null;
+    private static ApiService apiService = null;
+    private static ApiServiceLogin loginService = null;
+    private static final NetworkMetrics NETWORK_METRICS = new NetworkMetrics();
+    // 5 fallos seguidos abren el circuito 30 s. Login/API y el tráfico de fondo (sincronización,
+    // muestras, descarga del modelo) tienen circuitos separados: una subida que falla no bloquea el login
+    private static final CircuitBreaker CIRCUIT_BREAKER = new CircuitBreaker(5, 30_000);
+    private static final CircuitBreaker BACKGROUND_CIRCUIT_BREAKER = new CircuitBreaker(5, 30_000);
+
+    // Un solo grupo de hilos para todas las llamadas de red de la app
+    private static final ExecutorService NETWORK_EXECUTOR = Executors.newFixedThreadPool(4,
+            runnable -> new Thread(runnable, "ecovision-red"));
+    // Ambos clientes comparten hilos y conexiones keep-alive
+    private static final Dispatcher DISPATCHER = new Dispatcher(NETWORK_EXECUTOR);
+    private static final ConnectionPool CONNECTION_POOL = new ConnectionPool(5, 5, TimeUnit.MINUTES);
+
+    // Cliente de login/API: conexiones keep-alive reutilizadas (sin repetir el handshake TLS) y timeouts acotados.
+    // Orden: métricas (latencia total) -> reintentos -> circuito (cada intento cuenta como fallo o éxito)
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = newHttpClient(CIRCUIT_BREAKER);
+        }
+        return httpClient;
+    }
+
+    // Cliente del tráfico de fondo: mismos hilos, conexiones y timeouts, con su propio circuito
+    public static synchronized OkHttpClient getBackgroundHttpClient() {
+        if (backgroundHttpClient == null) {
+            backgroundHttpClient = newHttpClient(BACKGROUND_CIRCUIT_BREAKER);
+        }
+        return backgroundHttpClient;
+    }
+
+    private static OkHttpClient newHttpClient(CircuitBreaker circuitBreaker) {
+        return new OkHttpClient.Builder()
+                .dispatcher(DISPATCHER)
+                .connectionPool(CONNECTION_POOL)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(15, TimeUnit.SECONDS)
+                .writeTimeout(15, TimeUnit.SECONDS)
+                // Tope de la llamada completa; la descarga del modelo quita este tope en su propio cliente
+                .callTimeout(45, TimeUnit.SECONDS)
+                .addInterceptor(NETWORK_METRICS)
+                .addInterceptor(new RetryInterceptor(2, 500, 4000, NETWORK_METRICS))
+                .addInterceptor(circuitBreaker)
+                .build();
+    }
 
-    public static Retrofit getClient() {
+    public static synchronized Retrofit getClient() {
         if (retrofit == null) {
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
+                    .client(getHttpClient())
                     .addConverterFactory(GsonConverterFactory.create())
                     .build();
         }
         return retrofit;
     }
+
+    public static synchronized ApiService getApiService() {
+        if (apiService == null) {
+            apiService = getClient().create(ApiService.class);
+        }
+        return apiService;
+    }
+
+    public static synchronized ApiServiceLogin getLoginService() {
+        if (loginService == null) {
+            loginService = getClient().create(ApiServiceLogin.class);
+        }
+        return loginService;
+    }
+
+    public static NetworkMetrics getNetworkMetrics() {
+        return NETWORK_METRICS;
+    }
+
+    public static ExecutorService getNetworkExecutor() {
+        return NETWORK_EXECUTOR;
+    }
 }
@@ -1,20 +0,0 @@
-package com.example.ecovision;
-
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
-
-public class RetrofitLogin {
-
-    private static final String BASE_URL = "https://ecovision.bsite.net/api/Usuarios/ValidarLogin/"; // termina en /
-    private static Retrofit retrofit = null;
-
-    public static Retrofit getClient() {
-        if (retrofit == null) {
-            retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
-        }
-        return retrofit;
-    }
-}
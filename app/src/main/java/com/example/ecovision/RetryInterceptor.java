@@ -0,0 +1,98 @@
+package com.example.ecovision;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Reintenta con backoff exponencial y jitter completo las llamadas idempotentes que fallan por red,
+// timeout o 5xx/408/429. Un POST solo se reintenta si lleva la cabecera IDEMPOTENT_HEADER
+// (por ejemplo el login, que no modifica nada); la cabecera no llega al servidor.
+public class RetryInterceptor implements Interceptor {
+
+    public static final String IDEMPOTENT_HEADER = "X-Idempotente";
+
+    private static final String TAG = "RetryInterceptor";
+
+    private final int maxRetries;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final NetworkMetrics metrics;
+    private final Random random = new Random();
+
+    public RetryInterceptor(int maxRetries, long baseDelayMs, long maxDelayMs, NetworkMetrics metrics) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean idempotent = isIdempotent(request);
+        if (request.header(IDEMPOTENT_HEADER) != null) {
+            request = request.newBuilder().removeHeader(IDEMPOTENT_HEADER).build();
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            boolean canRetry = idempotent && attempt < maxRetries;
+            try {
+                Response response = chain.proceed(request);
+                if (!canRetry || !isRetryable(response.code())) {
+                    return response;
+                }
+                response.close();
+                Log.w(TAG, "HTTP " + response.code() + " en " + request.url().encodedPath()
+                        + ", reintento " + (attempt + 1));
+            } catch (ServerUnavailableException e) {
+                // Circuito abierto: reintentar solo retrasaría el error
+                throw e;
+            } catch (IOException e) {
+                if (!canRetry || chain.call().isCanceled()) {
+                    throw e;
+                }
+                Log.w(TAG, e + " en " + request.url().encodedPath() + ", reintento " + (attempt + 1));
+            }
+            metrics.recordRetry();
+            sleep(backoffMs(attempt));
+        }
+    }
+
+    static boolean isIdempotent(Request request) {
+        switch (request.method()) {
+            case "GET":
+            case "HEAD":
+            case "PUT":
+            case "DELETE":
+            case "OPTIONS":
+                return true;
+            default:
+                return request.header(IDEMPOTENT_HEADER) != null;
+        }
+    }
+
+    private static boolean isRetryable(int code) {
+        return code >= 500 || code == 408 || code == 429;
+    }
+
+    // Jitter completo: aleatorio entre 0 y base * 2^intento, con tope; los clientes no se sincronizan
+    private long backoffMs(int attempt) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt, 16));
+        return (long) (random.nextDouble() * ceiling);
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reintento interrumpido");
+        }
+    }
+}
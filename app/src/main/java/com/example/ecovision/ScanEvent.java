@@ -0,0 +1,33 @@
+package com.example.ecovision;
+
+public class ScanEvent {
+
+    // Solo existe localmente; no viaja al backend
+    private final transient long id;
+    private final String label;
+    private final float confidence;
+    private final long timestamp;
+
+    public ScanEvent(long id, String label, float confidence, long timestamp) {
+        this.id = id;
+        this.label = label;
+        this.confidence = confidence;
+        this.timestamp = timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.ecovision;
+
+import java.util.List;
+
+public interface ScanEventStore {
+
+    void append(String label, float confidence, long timestamp);
+
+    // Los eventos más antiguos primero, sin quitarlos de la cola
+    List<ScanEvent> peek(int maxEvents);
+
+    // Se llama solo después de que el backend confirmó el lote
+    void remove(List<ScanEvent> events);
+
+    int size();
+}
@@ -0,0 +1,177 @@
+package com.example.ecovision;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ScanHistoryStore {
+
+    public interface SummaryListener {
+        void onSummaryLoaded(Summary summary);
+    }
+
+    public static class Summary {
+        private final int score;
+        private final int totalScans;
+        private final int streakDays;
+        private final Map<String, Integer> totalsPerMaterial;
+
+        Summary(int score, int totalScans, int streakDays, Map<String, Integer> totalsPerMaterial) {
+            this.score = score;
+            this.totalScans = totalScans;
+            this.streakDays = streakDays;
+            this.totalsPerMaterial = totalsPerMaterial;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public int getTotalScans() {
+            return totalScans;
+        }
+
+        public int getStreakDays() {
+            return streakDays;
+        }
+
+        public Map<String, Integer> getTotalsPerMaterial() {
+            return totalsPerMaterial;
+        }
+    }
+
+    private static final String TAG = "ScanHistoryStore";
+    private static final String COUNTER_SCORE = "score";
+    private static final String COUNTER_SCANS = "scans";
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private static ScanHistoryStore instance;
+
+    private final EcoVisionDatabase database;
+    // Todas las escrituras y lecturas en un solo hilo, nunca en el principal
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "ecovision-historial"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized ScanHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ScanHistoryStore(EcoVisionDatabase.getInstance(context));
+        }
+        return instance;
+    }
+
+    private ScanHistoryStore(EcoVisionDatabase database) {
+        this.database = database;
+    }
+
+    // Guarda el escaneo y actualiza los contadores en la misma transacción
+    public void recordScan(String label, float confidence, int points) {
+        long timestamp = System.currentTimeMillis();
+        executor.execute(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                ContentValues values = new ContentValues();
+                values.put("label", label);
+                values.put("confidence", confidence);
+                values.put("points", points);
+                values.put("timestamp", timestamp);
+                db.insert(EcoVisionDatabase.TABLE_SCANS, null, values);
+
+                // SQLite de API 29 no tiene UPSERT: se inserta la fila si falta y luego se incrementa
+                db.execSQL("INSERT OR IGNORE INTO " + EcoVisionDatabase.TABLE_MATERIAL_TOTALS
+                        + " (label, count) VALUES (?, 0)", new Object[]{label});
+                db.execSQL("UPDATE " + EcoVisionDatabase.TABLE_MATERIAL_TOTALS
+                        + " SET count = count + 1 WHERE label = ?", new Object[]{label});
+
+                long day = localDay(timestamp);
+                db.execSQL("INSERT OR IGNORE INTO " + EcoVisionDatabase.TABLE_DAILY_TOTALS
+                        + " (day, count, points) VALUES (?, 0, 0)", new Object[]{day});
+                db.execSQL("UPDATE " + EcoVisionDatabase.TABLE_DAILY_TOTALS
+                        + " SET count = count + 1, points = points + ? WHERE day = ?", new Object[]{points, day});
+
+                incrementCounter(db, COUNTER_SCORE, points);
+                incrementCounter(db, COUNTER_SCANS, 1);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e(TAG, "Error guardando escaneo", e);
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    private static void incrementCounter(SQLiteDatabase db, String name, int delta) {
+        db.execSQL("INSERT OR IGNORE INTO " + EcoVisionDatabase.TABLE_COUNTERS
+                + " (name, value) VALUES (?, 0)", new Object[]{name});
+        db.execSQL("UPDATE " + EcoVisionDatabase.TABLE_COUNTERS
+                + " SET value = value + ? WHERE name = ?", new Object[]{delta, name});
+    }
+
+    // Se encola detrás de las escrituras pendientes, así que el resumen ya las incluye
+    public void loadSummary(SummaryListener listener) {
+        executor.execute(() -> {
+            Summary summary;
+            try {
+                summary = querySummary(database.getReadableDatabase());
+            } catch (Exception e) {
+                Log.e(TAG, "Error leyendo el resumen", e);
+                summary = new Summary(0, 0, 0, new LinkedHashMap<>());
+            }
+            Summary loaded = summary;
+            mainHandler.post(() -> listener.onSummaryLoaded(loaded));
+        });
+    }
+
+    private static Summary querySummary(SQLiteDatabase db) {
+        int score = (int) readCounter(db, COUNTER_SCORE);
+        int totalScans = (int) readCounter(db, COUNTER_SCANS);
+
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        try (Cursor cursor = db.query(EcoVisionDatabase.TABLE_MATERIAL_TOTALS,
+                new String[]{"label", "count"}, null, null, null, null, "count DESC")) {
+            while (cursor.moveToNext()) {
+                totals.put(cursor.getString(0), cursor.getInt(1));
+            }
+        }
+
+        // Racha: días consecutivos con escaneos terminando hoy (o ayer, si hoy aún no hay)
+        long today = localDay(System.currentTimeMillis());
+        long day = hasScansOn(db, today) ? today : today - 1;
+        int streak = 0;
+        while (hasScansOn(db, day)) {
+            streak++;
+            day--;
+        }
+        return new Summary(score, totalScans, streak, totals);
+    }
+
+    private static long readCounter(SQLiteDatabase db, String name) {
+        try {
+            return DatabaseUtils.longForQuery(db, "SELECT value FROM " + EcoVisionDatabase.TABLE_COUNTERS
+                    + " WHERE name = ?", new String[]{name});
+        } catch (android.database.sqlite.SQLiteDoneException e) {
+            return 0;
+        }
+    }
+
+    private static boolean hasScansOn(SQLiteDatabase db, long day) {
+        return DatabaseUtils.queryNumEntries(db, EcoVisionDatabase.TABLE_DAILY_TOTALS,
+                "day = ?", new String[]{String.valueOf(day)}) > 0;
+    }
+
+    private static long localDay(long timestamp) {
+        return (timestamp + TimeZone.getDefault().getOffset(timestamp)) / DAY_MS;
+    }
+}
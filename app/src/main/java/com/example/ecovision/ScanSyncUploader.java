@@ -0,0 +1,153 @@
+package com.example.ecovision;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+public class ScanSyncUploader {
+
+    private static final String TAG = "ScanSyncUploader";
+    private static final String ENDPOINT = "https://ecovision.bsite.net/api/Escaneos/Lote";
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private static final int MAX_BATCH = 50;
+    // Espera antes de subir para agrupar varios escaneos seguidos en un solo envío
+    private static final long COALESCE_DELAY_MS = 5_000;
+    private static final long BASE_BACKOFF_MS = 30_000;
+    private static final long MAX_BACKOFF_MS = 30 * 60_000;
+
+    private static ScanSyncUploader instance;
+
+    private final ScanEventStore store;
+    private final OkHttpClient httpClient;
+    private final String endpoint;
+    private final long coalesceDelayMs;
+    private final long baseBackoffMs;
+    private final Gson gson = new Gson();
+    private final Random random = new Random();
+
+    // Un solo hilo: escrituras en la cola y subidas nunca se cruzan ni bloquean la UI
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "ecovision-sync"));
+
+    // Solo se accede desde el hilo de sincronización
+    private boolean flushScheduled;
+    private int consecutiveFailures;
+
+    public static synchronized ScanSyncUploader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ScanSyncUploader(
+                    new SqliteScanEventStore(EcoVisionDatabase.getInstance(context)),
+                    RetrofitClient.getBackgroundHttpClient(), ENDPOINT, COALESCE_DELAY_MS, BASE_BACKOFF_MS);
+        }
+        return instance;
+    }
+
+    public ScanSyncUploader(ScanEventStore store, OkHttpClient httpClient, String endpoint,
+                            long coalesceDelayMs, long baseBackoffMs) {
+        this.store = store;
+        this.httpClient = httpClient;
+        this.endpoint = endpoint;
+        this.coalesceDelayMs = coalesceDelayMs;
+        this.baseBackoffMs = baseBackoffMs;
+    }
+
+    // Registra el escaneo en la cola local y programa una subida; no hace red en el hilo que llama
+    public void record(String label, float confidence) {
+        long timestamp = System.currentTimeMillis();
+        executor.execute(() -> {
+            store.append(label, confidence, timestamp);
+            scheduleFlush(coalesceDelayMs);
+        });
+    }
+
+    // Intenta subir lo pendiente, por ejemplo al abrir la app
+    public void requestSync() {
+        executor.execute(() -> scheduleFlush(0));
+    }
+
+    private void scheduleFlush(long delayMs) {
+        // Varias peticiones mientras hay una subida programada se fusionan en esa misma
+        if (flushScheduled) return;
+        flushScheduled = true;
+        executor.schedule(() -> {
+            flushScheduled = false;
+            if (!flushPending()) {
+                scheduleFlush(nextBackoffMs());
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Sube lotes hasta vaciar la cola; devuelve false si un envío falló
+    boolean flushPending() {
+        while (true) {
+            List<ScanEvent> batch = store.peek(MAX_BATCH);
+            if (batch.isEmpty()) {
+                consecutiveFailures = 0;
+                return true;
+            }
+            try {
+                upload(batch);
+                store.remove(batch);
+                consecutiveFailures = 0;
+            } catch (IOException e) {
+                consecutiveFailures++;
+                Log.w(TAG, "Subida fallida (" + consecutiveFailures + " seguidas), quedan "
+                        + store.size() + " eventos", e);
+                return false;
+            }
+        }
+    }
+
+    private void upload(List<ScanEvent> batch) throws IOException {
+        RequestBody body = RequestBody.create(JSON, gzip(gson.toJson(batch)));
+        Request request = new Request.Builder()
+                .url(endpoint)
+                .header("Content-Encoding", "gzip")
+                .post(body)
+                .build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.code());
+            }
+        }
+    }
+
+    private static byte[] gzip(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            writer.write(json);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Backoff exponencial con jitter: entre la mitad y el total de base * 2^fallos, con tope
+    private long nextBackoffMs() {
+        int exponent = Math.min(consecutiveFailures - 1, 16);
+        long delay = Math.min(MAX_BACKOFF_MS, baseBackoffMs << Math.max(exponent, 0));
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,518 @@
+package com.example.ecovision;
+
+import android.app.Application;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+import android.util.Size;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Estado del escaneo que sobrevive a la recreación de MainActivity (rotación, modo oscuro):
+// ejecutor de inferencia, clasificadores, voz, foto mostrada, último resultado y puntaje.
+// Los recursos nativos se liberan una sola vez, cuando la actividad termina de verdad.
+public class ScanViewModel extends AndroidViewModel {
+
+    // La actividad visible; cambia en cada recreación. Todo se entrega en el hilo principal.
+    public interface Host {
+        // Antes de cerrar el ejecutor por un cambio de modelo: el modo en vivo usa su hilo
+        void onExecutorClosing();
+
+        void onExecutorReady();
+
+        void onModelError(Exception e);
+
+        void onImageDecoded(Bitmap bitmap);
+
+        void onScores(float[] scores, boolean awardPoints);
+
+        void onBatchProgress(int processed, int total);
+
+        void onBatchFinished(BatchClassifier.Result result);
+
+        void onRegions(List<TileClassifier.Region> regions, int tileCount, long elapsedMs);
+
+        void onError(String message, Exception e);
+
+        void onScoreChanged(int score);
+
+        // El planificador cambió la resolución del análisis sin recrear el ejecutor
+        void onAnalysisSizeChanged();
+    }
+
+    private static final Locale SPEECH_LOCALE = new Locale("es", "ES");
+    private static final float SPEECH_RATE = 0.9f;
+    private static final float SPEECH_PITCH = 1.1f;
+    private static final int MODEL_FAILURES_BEFORE_ROLLBACK = 3;
+
+    private final ClassCatalog classCatalog;
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+    private final TextToSpeech textToSpeech;
+    private final AdaptiveScheduler scheduler;
+    private SpeechCache speechCache;
+    private Host host;
+
+    // El intérprete es de ModelHolder y vive todo el proceso; aquí solo el ejecutor que lo usa
+    private Interpreter interpreter;
+    // Resolución del análisis en vivo con la que se abrió la cámara por última vez
+    private Size analysisSize;
+    private InferenceExecutor inferenceExecutor;
+    private BatchClassifier batchClassifier;
+    private TileClassifier tileClassifier;
+
+    // Foto mostrada ya orientada, último resultado y zonas dibujadas, para restaurarlos tras una rotación
+    private Bitmap displayedBitmap;
+    private String resultMessage;
+    private String resultInfo;
+    private List<TileClassifier.Region> regions;
+    private List<String> regionCaptions;
+    private int score;
+    private ScanHistoryStore.Summary summary;
+
+    // Inicio de la captura actual y de la última locución; se leen en el hilo del TTS
+    private volatile long captureStartNanos;
+    private volatile long speechStartNanos;
+    private volatile boolean liveSpeaking;
+    private boolean cleared;
+    // Versión cuyo rollback ya se pidió: los errores que siguen en cola no retroceden otra más
+    private int rollbackRequestedFor = -1;
+
+    public ScanViewModel(@NonNull Application application) {
+        super(application);
+        classCatalog = ClassCatalog.getInstance(application);
+
+        textToSpeech = new TextToSpeech(application, this::onSpeechReady);
+        textToSpeech.setOnUtteranceProgressListener(speechTimer);
+
+        // Ritmo, hilos y resolución según latencia, temperatura y ahorro de batería
+        scheduler = new AdaptiveScheduler(application, this::onSchedulerChanged);
+        scheduler.start();
+        analysisSize = scheduler.getSettings().getAnalysisSize();
+
+        // El modelo se carga y calienta a nivel de aplicación; aquí solo se recibe listo
+        ModelHolder.getInstance().getInterpreter(application, modelListener);
+
+        // El acumulado persistido se carga aquí, no en cada recreación de la actividad
+        refreshSummary();
+    }
+
+    // El historial es la fuente del puntaje: la lectura se encola detrás de los escaneos ya guardados,
+    // así que se asigna tal cual y nunca se suma lo que ya se contó en memoria
+    private void refreshSummary() {
+        ScanHistoryStore.getInstance(getApplication()).loadSummary(loaded -> {
+            if (cleared) return;
+            summary = loaded;
+            score = loaded.getScore();
+            if (host != null) {
+                host.onScoreChanged(score);
+            }
+        });
+    }
+
+    public void attach(Host host) {
+        this.host = host;
+    }
+
+    // Solo suelta a quien sigue registrado; una actividad vieja nunca desengancha a la nueva
+    public void detach(Host host) {
+        if (this.host == host) {
+            this.host = null;
+        }
+    }
+
+    private void onSpeechReady(int status) {
+        if (cleared) return;
+        if (status == TextToSpeech.SUCCESS) {
+            int result = textToSpeech.setLanguage(SPEECH_LOCALE);
+            if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
+                Log.e("TTS", "Idioma no soportado");
+                Toast.makeText(getApplication(), "Idioma no soportado", Toast.LENGTH_SHORT).show();
+            } else {
+                // Velocidad y tono antes de hablar o sintetizar, no después
+                textToSpeech.setSpeechRate(SPEECH_RATE);
+                textToSpeech.setPitch(SPEECH_PITCH);
+                speechCache = new SpeechCache(getApplication(), textToSpeech, SPEECH_LOCALE, SPEECH_RATE, SPEECH_PITCH);
+                speechCache.prepare(fixedSpeechTexts());
+            }
+        } else {
+            Log.e("TTS", "Inicialización fallida");
+            Toast.makeText(getApplication(), "Error en síntesis de voz", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private final ModelHolder.Listener modelListener = new ModelHolder.Listener() {
+        @Override
+        public void onModelReady(Interpreter ready) {
+            if (cleared || ready == interpreter) return;
+
+            // Cambio de modelo en caliente: el ejecutor anterior descarta lo pendiente y termina su inferencia en curso
+            if (inferenceExecutor != null) {
+                if (host != null) {
+                    host.onExecutorClosing();
+                }
+                shutdownClassifiers();
+                inferenceExecutor.shutdown();
+            }
+
+            // Ejecutor nuevo: también empieza con la caché de resultados vacía
+            interpreter = ready;
+            inferenceExecutor = new InferenceExecutor(interpreter);
+            inferenceExecutor.setScheduler(scheduler);
+            Log.d("ModelSpecs", "Modelo v" + ModelHolder.getInstance().getModelVersion() + ": "
+                    + inferenceExecutor.getModelSpec());
+            // Las latencias de otro modelo no son comparables
+            metrics.reset();
+            if (host != null) {
+                host.onExecutorReady();
+            }
+        }
+
+        @Override
+        public void onInterpreterReplaced(Interpreter previous, Interpreter next, Runnable release) {
+            if (cleared || inferenceExecutor == null || previous != interpreter) {
+                onModelReady(next);
+                release.run();
+                return;
+            }
+            // Mismo modelo: el ejecutor, los clasificadores, la caché y las métricas siguen valiendo
+            interpreter = next;
+            inferenceExecutor.replaceInterpreter(next, release);
+        }
+
+        @Override
+        public void onModelError(Exception e) {
+            Log.e("ModelLoading", "Error carga modelo", e);
+            if (host != null) {
+                host.onModelError(e);
+            }
+        }
+    };
+
+    // Un tope de hilos distinto recrea el intérprete en caliente; una resolución distinta reabre el análisis
+    private void onSchedulerChanged(AdaptiveScheduler.Settings settings) {
+        if (cleared) return;
+        ModelHolder.getInstance().limitThreads(getApplication(), settings.getMaxThreads());
+        if (!settings.getAnalysisSize().equals(analysisSize)) {
+            analysisSize = settings.getAnalysisSize();
+            if (host != null) {
+                host.onAnalysisSizeChanged();
+            }
+        }
+    }
+
+    public AdaptiveScheduler getScheduler() {
+        return scheduler;
+    }
+
+    // null mientras el modelo no está listo
+    public InferenceExecutor getInferenceExecutor() {
+        return inferenceExecutor;
+    }
+
+    // Se ejecuta en el hilo de inferencia; una captura nueva descarta la anterior
+    public void classifyImage(Bitmap bitmap) {
+        captureStartNanos = System.nanoTime();
+        inferenceExecutor.submit(bitmap, classificationCallback);
+    }
+
+    // La decodificación submuestreada también ocurre fuera del hilo principal
+    public void classifyPhoto(String photoPath) {
+        captureStartNanos = System.nanoTime();
+        inferenceExecutor.submit(photoPath, classificationCallback);
+    }
+
+    public void classifyBatch(List<Uri> uris) {
+        if (batchClassifier == null) {
+            batchClassifier = new BatchClassifier(getApplication(), inferenceExecutor, classCatalog.getMinConfidence());
+        }
+        batchClassifier.classify(uris, new BatchClassifier.Listener() {
+            @Override
+            public void onProgress(int processed, int total) {
+                if (host != null) {
+                    host.onBatchProgress(processed, total);
+                }
+            }
+
+            @Override
+            public void onFinished(BatchClassifier.Result result) {
+                if (host != null) {
+                    host.onBatchFinished(result);
+                }
+            }
+        });
+    }
+
+    public void classifyTiles(String photoPath) {
+        if (tileClassifier == null) {
+            tileClassifier = new TileClassifier(inferenceExecutor, classCatalog.getMinConfidence());
+        }
+        tileClassifier.classify(photoPath, new TileClassifier.Listener() {
+            @Override
+            public void onRegions(List<TileClassifier.Region> regions, int tileCount, long elapsedMs) {
+                if (host != null) {
+                    host.onRegions(regions, tileCount, elapsedMs);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (host != null) {
+                    host.onError("Error analizando por zonas: ", e);
+                }
+            }
+        });
+    }
+
+    private final InferenceExecutor.Callback classificationCallback = new InferenceExecutor.Callback() {
+        @Override
+        public void onImageDecoded(Bitmap bitmap) {
+            showBitmap(bitmap);
+            if (host != null) {
+                host.onImageDecoded(bitmap);
+            }
+        }
+
+        @Override
+        public void onResult(float[] scores, long latencyMs, boolean fromCache) {
+            PerceptualHashCache cache = inferenceExecutor.getResultCache();
+            Log.d("Classification", "Latencia: " + latencyMs + " ms | En cola: "
+                    + inferenceExecutor.getQueueDepth() + " | Caché: " + (fromCache ? "acierto" : "fallo")
+                    + " (" + cache.getHits() + "/" + cache.getMisses() + ")");
+            // Reescanear el mismo objeto muestra el resultado pero no vuelve a sumar puntos ni a registrarse
+            if (host != null) {
+                host.onScores(scores, !fromCache);
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Log.e("Classification", "Error: ", e);
+            rollbackIfModelKeepsFailing();
+            if (host != null) {
+                host.onError("Error en clasificación: ", e);
+            }
+        }
+    };
+
+    // Un modelo descargado que falla en cada invocación se descarta y se vuelve a la versión anterior;
+    // el del APK (versión 0) no tiene a cuál volver
+    private void rollbackIfModelKeepsFailing() {
+        int version = ModelHolder.getInstance().getModelVersion();
+        if (inferenceExecutor == null
+                || inferenceExecutor.getConsecutiveModelFailures() < MODEL_FAILURES_BEFORE_ROLLBACK
+                || version == 0 || version == rollbackRequestedFor) {
+            return;
+        }
+        rollbackRequestedFor = version;
+        Log.w("Classification", "El modelo v" + version + " falló " + MODEL_FAILURES_BEFORE_ROLLBACK
+                + " veces seguidas; se vuelve a la anterior");
+        ModelHolder.getInstance().rollback(getApplication());
+    }
+
+    // Guarda la captura mostrada y devuelve la anterior al pool. La devolución pasa por el hilo de
+    // inferencia: ahí pudo quedar pendiente el hash o el empaquetado de esa misma foto.
+    public void showBitmap(Bitmap bitmap) {
+        Bitmap previous = displayedBitmap;
+        displayedBitmap = bitmap;
+        if (previous != null && previous != bitmap) {
+            releaseBitmap(previous);
+        }
+    }
+
+    private void releaseBitmap(Bitmap bitmap) {
+        if (inferenceExecutor != null) {
+            inferenceExecutor.getWorkerExecutor().execute(() -> BitmapPool.getInstance().put(bitmap));
+        } else {
+            BitmapPool.getInstance().put(bitmap);
+        }
+    }
+
+    public Bitmap getDisplayedBitmap() {
+        return displayedBitmap;
+    }
+
+    public void setResult(String message, String info) {
+        resultMessage = message;
+        resultInfo = info;
+    }
+
+    // null borra las zonas: una captura nueva ya no las muestra
+    public void setRegions(List<TileClassifier.Region> regions, List<String> captions) {
+        this.regions = regions;
+        this.regionCaptions = captions;
+    }
+
+    public List<TileClassifier.Region> getRegions() {
+        return regions;
+    }
+
+    public List<String> getRegionCaptions() {
+        return regionCaptions;
+    }
+
+    public String getResultMessage() {
+        return resultMessage;
+    }
+
+    // null si el último resultado no tiene detalle
+    public String getResultInfo() {
+        return resultInfo;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    // Llamar después de ScanHistoryStore.recordScan: se muestra ya y luego se corrige con lo guardado
+    public void addPoints(int points) {
+        if (points == 0) return;
+        score += points;
+        if (host != null) {
+            host.onScoreChanged(score);
+        }
+        refreshSummary();
+    }
+
+    // null hasta que se lee el historial
+    public ScanHistoryStore.Summary getSummary() {
+        return summary;
+    }
+
+    // En vivo no hay un disparador único que medir de extremo a extremo
+    public void clearCaptureStart() {
+        captureStartNanos = 0;
+    }
+
+    public void speak(String message) {
+        if (cleared) return;
+        speechStartNanos = System.nanoTime();
+        // Audio guardado si existe; si no, síntesis en vivo como antes
+        if (speechCache != null && speechCache.play(message)) {
+            // Solo se corta una locución en vivo; stop() también descartaría las síntesis pendientes
+            if (liveSpeaking) {
+                textToSpeech.stop();
+            }
+            recordSpeechStarted();
+            return;
+        }
+        if (speechCache != null) {
+            speechCache.stop();
+        }
+        liveSpeaking = true;
+        textToSpeech.speak(message, TextToSpeech.QUEUE_FLUSH, null, "resultado");
+    }
+
+    // Mide desde la llamada a speak hasta que el motor empieza a hablar
+    private final UtteranceProgressListener speechTimer = new UtteranceProgressListener() {
+        @Override
+        public void onStart(String utteranceId) {
+            SpeechCache cache = speechCache;
+            if (cache != null && cache.isCacheUtterance(utteranceId)) return;
+            recordSpeechStarted();
+        }
+
+        @Override
+        public void onDone(String utteranceId) {
+            SpeechCache cache = speechCache;
+            if (cache == null) return;
+            if (cache.isCacheUtterance(utteranceId)) {
+                cache.onSynthesisDone(utteranceId);
+            } else {
+                liveSpeaking = false;
+                cache.synthesizeMissing();
+            }
+        }
+
+        // Motores antiguos solo llaman a la versión obsoleta; los actuales, a la que trae el código
+        @Override
+        @SuppressWarnings("deprecation")
+        public void onError(String utteranceId) {
+            onStop(utteranceId, false);
+        }
+
+        @Override
+        public void onError(String utteranceId, int errorCode) {
+            onStop(utteranceId, false);
+        }
+
+        @Override
+        public void onStop(String utteranceId, boolean interrupted) {
+            SpeechCache cache = speechCache;
+            if (cache == null) return;
+            if (cache.isCacheUtterance(utteranceId)) {
+                cache.onSynthesisError(utteranceId);
+            } else {
+                liveSpeaking = false;
+                cache.synthesizeMissing();
+            }
+        }
+    };
+
+    private void recordSpeechStarted() {
+        metrics.record(PipelineMetrics.Stage.SPEECH, speechStartNanos);
+        long captureStart = captureStartNanos;
+        if (captureStart != 0) {
+            metrics.record(PipelineMetrics.Stage.CAPTURE_TO_SPEECH, captureStart);
+            captureStartNanos = 0;
+        }
+    }
+
+    // Los mensajes de cada clase son fijos y se pueden sintetizar de antemano
+    private List<String> fixedSpeechTexts() {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < classCatalog.size(); i++) {
+            texts.add(speechText(classCatalog.get(i).getMessage(), classCatalog.get(i).getInfo()));
+        }
+        texts.add(speechText(classCatalog.getUnknown().getMessage(), classCatalog.getUnknown().getInfo()));
+        return texts;
+    }
+
+    public static String speechText(String message, String info) {
+        return message + ". " + info;
+    }
+
+    private void shutdownClassifiers() {
+        if (batchClassifier != null) {
+            batchClassifier.shutdown();
+            batchClassifier = null;
+        }
+        if (tileClassifier != null) {
+            tileClassifier.shutdown();
+            tileClassifier = null;
+        }
+    }
+
+    // Solo cuando la actividad termina (atrás, finish), nunca en una rotación
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (cleared) return;
+        cleared = true;
+        host = null;
+        ModelHolder.getInstance().removeListener(modelListener);
+        scheduler.stop();
+        shutdownClassifiers();
+        // La foto mostrada no vuelve al pool: la vista que la dibuja puede seguir viva un frame más
+        displayedBitmap = null;
+        if (inferenceExecutor != null) {
+            inferenceExecutor.shutdown();
+            inferenceExecutor = null;
+        }
+        if (speechCache != null) {
+            speechCache.release();
+            speechCache = null;
+        }
+        textToSpeech.stop();
+        textToSpeech.shutdown();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.ecovision;
+
+import java.io.IOException;
+
+// El circuito está abierto: el backend falló seguido y no se intenta la llamada
+public class ServerUnavailableException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ServerUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.ecovision;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.WorkerThread;
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKeys;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import retrofit2.Response;
+
+public class SessionStore {
+
+    private static final String TAG = "SessionStore";
+    private static final String PREFS = "sesion_cifrada";
+    private static final String KEY_USERNAME = "usuario";
+    private static final String KEY_TOKEN = "token";
+    private static final String KEY_EXPIRES_AT = "expira";
+
+    // Tiempo que una sesión validada permite entrar sin volver a pedir credenciales; al caducar se
+    // vuelve al login. Se guardan el usuario y el token que devolvió el servidor, nunca la contraseña:
+    // el token es lo que se revalida en cada arranque en caliente.
+    private static final long SESSION_TTL_MS = 7L * 24 * 60 * 60 * 1000;
+
+    public interface SessionCallback {
+        void onResult(boolean valid);
+    }
+
+    private static SessionStore instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Abrir el almacén cifrado crea o lee la clave del Keystore: nunca en el hilo principal
+    private final ExecutorService io = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "ecovision-sesion"));
+
+    // Protegidos por this; encrypted queda null si el almacén cifrado no está disponible
+    private SharedPreferences encrypted;
+    private boolean openAttempted;
+
+    public static synchronized SessionStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private SessionStore(Context context) {
+        this.context = context;
+        // Se abre ya en segundo plano para que el primer guardado no espere al Keystore
+        io.execute(this::encrypted);
+    }
+
+    // La caducidad vive cifrada junto a la sesión: se lee en segundo plano y se responde en el hilo
+    // principal. Sin almacén cifrado no hay sesión y se pide login en cada arranque.
+    public void checkSession(SessionCallback callback) {
+        io.execute(() -> {
+            SharedPreferences prefs = encrypted();
+            boolean valid = prefs != null && System.currentTimeMillis() < prefs.getLong(KEY_EXPIRES_AT, 0);
+            if (!valid && prefs != null && prefs.contains(KEY_TOKEN)) {
+                // Caducada: el token y el usuario no se quedan en el equipo
+                prefs.edit().clear().apply();
+            }
+            mainHandler.post(() -> callback.onResult(valid));
+        });
+    }
+
+    // Token de la respuesta del login; sin él la sesión no se puede revalidar y no se guarda
+    public static String tokenFrom(JsonElement body) {
+        if (body == null || !body.isJsonObject()) return null;
+        JsonObject object = body.getAsJsonObject();
+        JsonElement token = object.get(KEY_TOKEN);
+        return token != null && token.isJsonPrimitive() ? token.getAsString() : null;
+    }
+
+    // Guarda la respuesta validada del servidor y renueva la caducidad; no bloquea al que llama
+    public void save(String username, String token) {
+        long expiresAt = System.currentTimeMillis() + SESSION_TTL_MS;
+        io.execute(() -> {
+            SharedPreferences prefs = encrypted();
+            if (prefs == null) return;
+            prefs.edit()
+                    .putString(KEY_USERNAME, username)
+                    .putString(KEY_TOKEN, token)
+                    .putLong(KEY_EXPIRES_AT, expiresAt)
+                    .apply();
+        });
+    }
+
+    // Comprueba el token guardado con el servidor. Si lo rechaza, borra la sesión y llama a onRejected
+    // en el hilo principal; sin red o con el servidor caído la sesión sigue hasta su caducidad.
+    public void revalidate(Runnable onRejected) {
+        io.execute(() -> {
+            SharedPreferences prefs = encrypted();
+            String token = prefs == null ? null : prefs.getString(KEY_TOKEN, null);
+            if (token != null) {
+                try {
+                    Response<JsonElement> response = RetrofitClient.getLoginService()
+                            .ValidarToken("Bearer " + token).execute();
+                    JsonElement body = response.body();
+                    boolean rejected = response.code() == 401 || response.code() == 403
+                            || (response.isSuccessful() && (body == null || body.isJsonNull()));
+                    if (!rejected) return;
+                } catch (IOException e) {
+                    Log.w(TAG, "No se pudo revalidar la sesión; se mantiene hasta que caduque", e);
+                    return;
+                }
+            }
+            if (prefs != null) {
+                prefs.edit().clear().apply();
+            }
+            mainHandler.post(onRejected);
+        });
+    }
+
+    @WorkerThread
+    private synchronized SharedPreferences encrypted() {
+        if (openAttempted) return encrypted;
+        openAttempted = true;
+        try {
+            String masterKeyAlias = MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC);
+            encrypted = EncryptedSharedPreferences.create(PREFS, masterKeyAlias, context,
+                    EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                    EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+        } catch (Exception e) {
+            Log.e(TAG, "No se pudo abrir el almacén cifrado de sesión", e);
+            encrypted = null;
+        }
+        return encrypted;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.ecovision;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.speech.tts.TextToSpeech;
+import android.util.Log;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Audio ya sintetizado de los mensajes fijos; se reproduce con SoundPool sin esperar al motor de voz
+public class SpeechCache {
+
+    private static final String TAG = "SpeechCache";
+    private static final String DIRECTORY = "voz";
+    // Prefijo de las síntesis a archivo, para distinguirlas de las locuciones en vivo
+    private static final String UTTERANCE_PREFIX = "cache:";
+
+    private final TextToSpeech textToSpeech;
+    private final File directory;
+    private final String voiceKey;
+    private final SoundPool soundPool;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "ecovision-voz"));
+
+    // Texto -> clave del archivo; se fija en prepare() y luego solo se lee
+    private final Map<String, String> keysByText = new ConcurrentHashMap<>();
+    // Clave -> sonido de SoundPool, solo cuando ya terminó de cargarse
+    private final Map<String, Integer> loadedSounds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> pendingLoads = new ConcurrentHashMap<>();
+    // Síntesis pedidas al motor y aún sin terminar; solo desde el hilo de la caché
+    private final Set<String> inFlight = new HashSet<>();
+    private int currentStream;
+    private volatile boolean released;
+
+    public SpeechCache(Context context, TextToSpeech textToSpeech, Locale locale, float rate, float pitch) {
+        this.textToSpeech = textToSpeech;
+        this.directory = new File(context.getCacheDir(), DIRECTORY);
+        // La clave incluye voz, velocidad y tono: cambiar cualquiera invalida el audio guardado
+        this.voiceKey = locale.toLanguageTag() + "|" + rate + "|" + pitch;
+        this.soundPool = new SoundPool.Builder()
+                .setMaxStreams(1)
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ASSISTANCE_ACCESSIBILITY)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .build();
+        soundPool.setOnLoadCompleteListener((pool, sampleId, status) -> {
+            String key;
+            synchronized (pendingLoads) {
+                key = pendingLoads.remove(sampleId);
+            }
+            if (key == null) return;
+            if (status == 0) {
+                loadedSounds.put(key, sampleId);
+            } else {
+                Log.w(TAG, "No se pudo cargar el audio " + key);
+            }
+        });
+    }
+
+    // Llamar tras inicializar el TTS con su idioma, velocidad y tono; sintetiza solo lo que falta
+    public void prepare(List<String> texts) {
+        executor.execute(() -> {
+            if (!directory.exists() && !directory.mkdirs()) {
+                Log.w(TAG, "No se pudo crear " + directory);
+                return;
+            }
+            Map<String, String> keys = new HashMap<>();
+            for (String text : texts) {
+                keys.put(text, keyFor(text));
+            }
+            keysByText.putAll(keys);
+            pruneStaleFiles(keys);
+
+            for (String key : keys.values()) {
+                File file = audioFile(key);
+                if (file.length() > 0) {
+                    load(key, file);
+                }
+            }
+            requestMissing();
+        });
+    }
+
+    // Una locución en vivo con QUEUE_FLUSH descarta las síntesis encoladas; se vuelven a pedir al terminar
+    public void synthesizeMissing() {
+        if (released) return;
+        executor.execute(this::requestMissing);
+    }
+
+    private void requestMissing() {
+        for (Map.Entry<String, String> entry : keysByText.entrySet()) {
+            String key = entry.getValue();
+            if (released) return;
+            if (inFlight.contains(key) || audioFile(key).length() > 0) continue;
+            // Se escribe a un temporal y se renombra al terminar: nunca queda un audio a medias
+            int result = textToSpeech.synthesizeToFile(entry.getKey(), null,
+                    temporaryFile(key), UTTERANCE_PREFIX + key);
+            if (result == TextToSpeech.SUCCESS) {
+                inFlight.add(key);
+            } else {
+                Log.w(TAG, "El motor rechazó la síntesis de " + key);
+            }
+        }
+    }
+
+    public boolean isCacheUtterance(String utteranceId) {
+        return utteranceId != null && utteranceId.startsWith(UTTERANCE_PREFIX);
+    }
+
+    // Desde el UtteranceProgressListener del TTS, al terminar una síntesis a archivo
+    public void onSynthesisDone(String utteranceId) {
+        if (released) return;
+        String key = utteranceId.substring(UTTERANCE_PREFIX.length());
+        executor.execute(() -> {
+            inFlight.remove(key);
+            File temporary = temporaryFile(key);
+            File file = audioFile(key);
+            if (temporary.renameTo(file)) {
+                load(key, file);
+            } else {
+                Log.w(TAG, "No se pudo guardar el audio " + key);
+            }
+        });
+    }
+
+    public void onSynthesisError(String utteranceId) {
+        if (released) return;
+        String key = utteranceId.substring(UTTERANCE_PREFIX.length());
+        executor.execute(() -> {
+            inFlight.remove(key);
+            temporaryFile(key).delete();
+        });
+    }
+
+    // Reproduce el audio guardado; false si aún no existe y hay que sintetizar en vivo
+    public synchronized boolean play(String text) {
+        String key = keysByText.get(text);
+        Integer sound = key == null ? null : loadedSounds.get(key);
+        if (sound == null || released) return false;
+        stop();
+        currentStream = soundPool.play(sound, 1f, 1f, 1, 0, 1f);
+        return currentStream != 0;
+    }
+
+    public synchronized void stop() {
+        if (currentStream != 0) {
+            soundPool.stop(currentStream);
+            currentStream = 0;
+        }
+    }
+
+    public synchronized void release() {
+        released = true;
+        executor.shutdown();
+        soundPool.release();
+    }
+
+    private void load(String key, File file) {
+        if (released) return;
+        // El aviso de carga puede llegar antes de registrar el id si no se bloquea
+        synchronized (pendingLoads) {
+            pendingLoads.put(soundPool.load(file.getAbsolutePath(), 1), key);
+        }
+    }
+
+    // Borra audios de textos o voces que ya no se usan
+    private void pruneStaleFiles(Map<String, String> keys) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            String key = name.endsWith(".tmp.wav") ? null : name.replace(".wav", "");
+            if (key == null || !keys.containsValue(key)) {
+                file.delete();
+            }
+        }
+    }
+
+    private File audioFile(String key) {
+        return new File(directory, key + ".wav");
+    }
+
+    private File temporaryFile(String key) {
+        return new File(directory, key + ".tmp.wav");
+    }
+
+    private String keyFor(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest((voiceKey + "|" + text).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format(Locale.ROOT, "%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ecovision;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SqliteScanEventStore implements ScanEventStore {
+
+    private final EcoVisionDatabase database;
+
+    public SqliteScanEventStore(EcoVisionDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public void append(String label, float confidence, long timestamp) {
+        ContentValues values = new ContentValues();
+        values.put("label", label);
+        values.put("confidence", confidence);
+        values.put("timestamp", timestamp);
+        database.getWritableDatabase().insert(EcoVisionDatabase.TABLE_SCAN_QUEUE, null, values);
+    }
+
+    @Override
+    public List<ScanEvent> peek(int maxEvents) {
+        List<ScanEvent> events = new ArrayList<>();
+        try (Cursor cursor = database.getReadableDatabase().query(EcoVisionDatabase.TABLE_SCAN_QUEUE,
+                new String[]{"id", "label", "confidence", "timestamp"},
+                null, null, null, null, "id ASC", String.valueOf(maxEvents))) {
+            while (cursor.moveToNext()) {
+                events.add(new ScanEvent(cursor.getLong(0), cursor.getString(1),
+                        cursor.getFloat(2), cursor.getLong(3)));
+            }
+        }
+        return events;
+    }
+
+    @Override
+    public void remove(List<ScanEvent> events) {
+        if (events.isEmpty()) return;
+        // Los lotes se leen en orden de id, así que basta con borrar hasta el último enviado
+        long lastId = events.get(events.size() - 1).getId();
+        database.getWritableDatabase().delete(EcoVisionDatabase.TABLE_SCAN_QUEUE,
+                "id <= ?", new String[]{String.valueOf(lastId)});
+    }
+
+    @Override
+    public int size() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        return (int) DatabaseUtils.queryNumEntries(db, EcoVisionDatabase.TABLE_SCAN_QUEUE);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ecovision;
+
+public class StableLabelFilter {
+
+    public static final int NO_LABEL = -1;
+
+    private final int requiredFrames;
+    private final float minConfidence;
+    private final long repeatCooldownMs;
+
+    private int candidate = NO_LABEL;
+    private int candidateCount;
+    private int lastEmitted = NO_LABEL;
+    private long lastEmittedAt;
+
+    public StableLabelFilter(int requiredFrames, float minConfidence, long repeatCooldownMs) {
+        this.requiredFrames = requiredFrames;
+        this.minConfidence = minConfidence;
+        this.repeatCooldownMs = repeatCooldownMs;
+    }
+
+    // Devuelve la etiqueta solo cuando se mantuvo estable; NO_LABEL en cualquier otro caso
+    public synchronized int update(int label, float confidence, long nowMs) {
+        if (confidence < minConfidence) {
+            candidate = NO_LABEL;
+            candidateCount = 0;
+            return NO_LABEL;
+        }
+
+        if (label == candidate) {
+            candidateCount++;
+        } else {
+            candidate = label;
+            candidateCount = 1;
+        }
+        // Se emite una sola vez al volverse estable, no en cada frame mientras el objeto siga a la vista
+        if (candidateCount != requiredFrames) {
+            return NO_LABEL;
+        }
+
+        // Un parpadeo breve no vuelve a disparar la misma etiqueta (voz y puntaje) antes del tiempo de espera
+        if (label == lastEmitted && nowMs - lastEmittedAt < repeatCooldownMs) {
+            return NO_LABEL;
+        }
+        lastEmitted = label;
+        lastEmittedAt = nowMs;
+        return label;
+    }
+
+    public synchronized void reset() {
+        candidate = NO_LABEL;
+        candidateCount = 0;
+        lastEmitted = NO_LABEL;
+        lastEmittedAt = 0;
+    }
+}
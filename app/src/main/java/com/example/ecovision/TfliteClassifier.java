@@ -0,0 +1,72 @@
+package com.example.ecovision;
+
+import com.example.ecovision.core.Classifier;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+
+// Backend de TFLite: ejecuta el intérprete compartido de ModelHolder y decuantiza la salida
+public class TfliteClassifier implements Classifier {
+
+    private final Interpreter interpreter;
+    private final ModelSpec modelSpec;
+
+    // Salidas preasignadas según el tipo del tensor; se reutilizan en cada inferencia
+    private final byte[][] quantizedOutput;
+    private final float[][] floatOutput;
+
+    public TfliteClassifier(Interpreter interpreter, ModelSpec modelSpec) {
+        this.interpreter = interpreter;
+        this.modelSpec = modelSpec;
+        if (modelSpec.isQuantizedOutput()) {
+            quantizedOutput = new byte[1][modelSpec.getNumClasses()];
+            floatOutput = null;
+        } else {
+            quantizedOutput = null;
+            floatOutput = new float[1][modelSpec.getNumClasses()];
+        }
+    }
+
+    @Override
+    public int getInputSize() {
+        return modelSpec.getInputSize();
+    }
+
+    @Override
+    public boolean isFloatInput() {
+        return modelSpec.isFloatInput();
+    }
+
+    @Override
+    public boolean isSignedInput() {
+        return modelSpec.getInputDataType() == DataType.INT8;
+    }
+
+    @Override
+    public int getNumClasses() {
+        return modelSpec.getNumClasses();
+    }
+
+    // La copia se hace dentro del bloqueo: el resultado se publica a otro hilo y las salidas se reutilizan
+    @Override
+    public float[] classify(ByteBuffer input) {
+        int numClasses = modelSpec.getNumClasses();
+        float[] scores = new float[numClasses];
+        synchronized (interpreter) {
+            if (quantizedOutput != null) {
+                interpreter.run(input, quantizedOutput);
+                byte[] raw = quantizedOutput[0];
+                boolean unsigned = modelSpec.getOutputDataType() == DataType.UINT8;
+                for (int i = 0; i < numClasses; i++) {
+                    scores[i] = modelSpec.dequantize(unsigned ? raw[i] & 0xFF : raw[i]);
+                }
+            } else {
+                interpreter.run(input, floatOutput);
+                System.arraycopy(floatOutput[0], 0, scores, 0, numClasses);
+            }
+        }
+        return scores;
+    }
+}
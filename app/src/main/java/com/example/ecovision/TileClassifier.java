@@ -0,0 +1,332 @@
+package com.example.ecovision;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.ecovision.core.ScorePostprocessor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Clasifica una foto completa por zonas: recortes solapados a varias escalas, inferencia por lotes
+// y fusión de recortes vecinos con la misma etiqueta en una región
+public class TileClassifier {
+
+    public interface Listener {
+        // En el hilo principal; coordenadas normalizadas en la orientación en que se muestra la foto
+        void onRegions(List<Region> regions, int tileCount, long elapsedMs);
+
+        void onError(Exception e);
+    }
+
+    public static class Region {
+        private final int labelIndex;
+        private final float confidence;
+        private final int tileCount;
+        private final float left;
+        private final float top;
+        private final float right;
+        private final float bottom;
+
+        Region(int labelIndex, float confidence, int tileCount, float left, float top, float right, float bottom) {
+            this.labelIndex = labelIndex;
+            this.confidence = confidence;
+            this.tileCount = tileCount;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        public int getLabelIndex() {
+            return labelIndex;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        public int getTileCount() {
+            return tileCount;
+        }
+
+        public float getLeft() {
+            return left;
+        }
+
+        public float getTop() {
+            return top;
+        }
+
+        public float getRight() {
+            return right;
+        }
+
+        public float getBottom() {
+            return bottom;
+        }
+    }
+
+    private static final String TAG = "TileClassifier";
+    // Lado del recorte respecto al lado menor de la foto; cada escala se recorre con solape del 50 %
+    private static final float[] TILE_SCALES = {0.5f, 1f / 3f};
+    private static final int BATCH_SIZE = 8;
+
+    private final InferenceExecutor inferenceExecutor;
+    private final ModelSpec modelSpec;
+    private final BatchRunner batchRunner;
+    // Solo los usa el hilo coordinador; el postprocesado aplica la misma confianza mínima que un escaneo suelto
+    private final ScorePostprocessor postprocessor;
+    private final ImagePreprocessor preprocessor;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "ecovision-zonas"));
+
+    // Reutilizados entre fotos: un lote y un bitmap por escala, nunca la foto completa en memoria
+    private ByteBuffer batchBuffer;
+    private final Bitmap[] tileBitmaps = new Bitmap[TILE_SCALES.length];
+    // Lado del recorte con que se decodificó cada bitmap; otra foto puede necesitar otro tamaño
+    private final int[] tileSides = new int[TILE_SCALES.length];
+
+    public TileClassifier(InferenceExecutor inferenceExecutor, float minConfidence) {
+        this.inferenceExecutor = inferenceExecutor;
+        this.modelSpec = inferenceExecutor.getModelSpec();
+        this.batchRunner = new BatchRunner(inferenceExecutor);
+        this.postprocessor = new ScorePostprocessor(minConfidence);
+        this.preprocessor = new ImagePreprocessor(modelSpec);
+    }
+
+    public void classify(String photoPath, Listener listener) {
+        coordinator.execute(() -> {
+            try {
+                long start = SystemClock.elapsedRealtime();
+                int rotation = CaptureDecoder.readRotationDegrees(photoPath);
+                List<Tile> tiles = classifyTiles(photoPath, rotation);
+                List<Region> regions = merge(tiles, rotation);
+                long elapsedMs = SystemClock.elapsedRealtime() - start;
+                Log.i(TAG, tiles.size() + " recortes, " + regions.size() + " regiones en " + elapsedMs + " ms");
+                inferenceExecutor.postToMain(() -> listener.onRegions(regions, tiles.size(), elapsedMs));
+            } catch (Exception e) {
+                Log.e(TAG, "Error clasificando por zonas", e);
+                inferenceExecutor.postToMain(() -> listener.onError(e));
+            }
+        });
+    }
+
+    private static class Tile {
+        final Rect bounds;
+        final int scaleIndex;
+        int labelIndex;
+        float confidence;
+
+        Tile(Rect bounds, int scaleIndex) {
+            this.bounds = bounds;
+            this.scaleIndex = scaleIndex;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private List<Tile> classifyTiles(String photoPath, int rotation) throws Exception {
+        BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(photoPath, false);
+        if (decoder == null) {
+            throw new IllegalStateException("No se pudo abrir la foto");
+        }
+        try {
+            List<Tile> tiles = layoutTiles(decoder.getWidth(), decoder.getHeight());
+
+            int bytesPerImage = modelSpec.getInputSize() * modelSpec.getInputSize() * 3
+                    * (modelSpec.isFloatInput() ? 4 : 1);
+            if (batchBuffer == null) {
+                batchBuffer = ByteBuffer.allocateDirect(bytesPerImage * BATCH_SIZE);
+                batchBuffer.order(ByteOrder.nativeOrder());
+            }
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            options.inMutable = true;
+
+            for (int offset = 0; offset < tiles.size(); offset += BATCH_SIZE) {
+                int count = Math.min(BATCH_SIZE, tiles.size() - offset);
+                for (int slot = 0; slot < count; slot++) {
+                    Tile tile = tiles.get(offset + slot);
+                    Bitmap bitmap = decodeTile(decoder, tile, options);
+                    ByteBuffer packed = preprocessor.process(bitmap, rotation);
+                    ByteBuffer target = batchBuffer.duplicate();
+                    target.position(slot * bytesPerImage);
+                    target.put(packed);
+                }
+
+                float[][] scores = batchRunner.run(batchBuffer, count, bytesPerImage);
+                for (int slot = 0; slot < count; slot++) {
+                    Tile tile = tiles.get(offset + slot);
+                    tile.labelIndex = postprocessor.decide(scores[slot]);
+                    tile.confidence = postprocessor.getConfidence();
+                }
+            }
+            return tiles;
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    // Decodifica el recorte submuestreado sobre el bitmap de su escala; todos los de una escala miden igual
+    private Bitmap decodeTile(BitmapRegionDecoder decoder, Tile tile, BitmapFactory.Options options) {
+        int side = tile.bounds.width();
+        options.inSampleSize = CaptureDecoder.calculateInSampleSize(side, side, modelSpec.getInputSize());
+        Bitmap reusable = tileBitmaps[tile.scaleIndex];
+        // Con un bitmap de otro tamaño el decodificador recortaría o dejaría píxeles viejos
+        if (reusable != null && tileSides[tile.scaleIndex] != side) {
+            reusable.recycle();
+            reusable = null;
+            tileBitmaps[tile.scaleIndex] = null;
+        }
+        options.inBitmap = reusable;
+        Bitmap decoded;
+        try {
+            decoded = decoder.decodeRegion(tile.bounds, options);
+        } catch (IllegalArgumentException e) {
+            // El bitmap reutilizable no sirve para este tamaño; se decodifica uno nuevo
+            options.inBitmap = null;
+            decoded = decoder.decodeRegion(tile.bounds, options);
+        }
+        if (decoded == null) {
+            throw new IllegalStateException("No se pudo decodificar el recorte " + tile.bounds);
+        }
+        if (decoded != reusable) {
+            if (reusable != null) {
+                reusable.recycle();
+            }
+            tileBitmaps[tile.scaleIndex] = decoded;
+            tileSides[tile.scaleIndex] = side;
+        }
+        return decoded;
+    }
+
+    // Cuadrícula solapada por escala; el último recorte de cada fila y columna se ajusta al borde
+    private static List<Tile> layoutTiles(int width, int height) {
+        List<Tile> tiles = new ArrayList<>();
+        int shortSide = Math.min(width, height);
+        for (int scale = 0; scale < TILE_SCALES.length; scale++) {
+            int side = Math.max(1, Math.round(shortSide * TILE_SCALES[scale]));
+            int stride = Math.max(1, side / 2);
+            for (int top : positions(height, side, stride)) {
+                for (int left : positions(width, side, stride)) {
+                    tiles.add(new Tile(new Rect(left, top, left + side, top + side), scale));
+                }
+            }
+        }
+        return tiles;
+    }
+
+    private static List<Integer> positions(int length, int side, int stride) {
+        List<Integer> positions = new ArrayList<>();
+        int last = length - side;
+        for (int position = 0; position < last; position += stride) {
+            positions.add(position);
+        }
+        positions.add(last);
+        return positions;
+    }
+
+    // Une recortes seguros con la misma etiqueta que se solapan; cada grupo es una región
+    private List<Region> merge(List<Tile> tiles, int rotation) {
+        List<Tile> confident = new ArrayList<>();
+        for (Tile tile : tiles) {
+            if (tile.labelIndex != ScorePostprocessor.NOT_SURE) {
+                confident.add(tile);
+            }
+        }
+
+        int[] parent = new int[confident.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < confident.size(); i++) {
+            for (int j = i + 1; j < confident.size(); j++) {
+                Tile a = confident.get(i);
+                Tile b = confident.get(j);
+                if (a.labelIndex == b.labelIndex && Rect.intersects(a.bounds, b.bounds)) {
+                    parent[find(parent, i)] = find(parent, j);
+                }
+            }
+        }
+
+        // Caja envolvente y confianza máxima por grupo
+        Rect[] boxes = new Rect[confident.size()];
+        float[] best = new float[confident.size()];
+        int[] counts = new int[confident.size()];
+        for (int i = 0; i < confident.size(); i++) {
+            int root = find(parent, i);
+            Tile tile = confident.get(i);
+            if (boxes[root] == null) {
+                boxes[root] = new Rect(tile.bounds);
+            } else {
+                boxes[root].union(tile.bounds);
+            }
+            best[root] = Math.max(best[root], tile.confidence);
+            counts[root]++;
+        }
+
+        // El último recorte de cada escala toca el borde: el máximo da el tamaño de la foto
+        int width = 0;
+        int height = 0;
+        for (Tile tile : tiles) {
+            width = Math.max(width, tile.bounds.right);
+            height = Math.max(height, tile.bounds.bottom);
+        }
+
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0; i < confident.size(); i++) {
+            if (boxes[i] == null) continue;
+            regions.add(toDisplayRegion(confident.get(i).labelIndex, best[i], counts[i], boxes[i],
+                    width, height, rotation));
+        }
+        return regions;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // Normaliza y gira la caja para que coincida con la foto ya orientada según EXIF
+    private static Region toDisplayRegion(int labelIndex, float confidence, int tileCount, Rect box,
+                                          int width, int height, int rotation) {
+        float l = box.left / (float) width;
+        float t = box.top / (float) height;
+        float r = box.right / (float) width;
+        float b = box.bottom / (float) height;
+        switch (rotation) {
+            case 90:
+                return new Region(labelIndex, confidence, tileCount, 1 - b, l, 1 - t, r);
+            case 180:
+                return new Region(labelIndex, confidence, tileCount, 1 - r, 1 - b, 1 - l, 1 - t);
+            case 270:
+                return new Region(labelIndex, confidence, tileCount, t, 1 - r, b, 1 - l);
+            default:
+                return new Region(labelIndex, confidence, tileCount, l, t, r, b);
+        }
+    }
+
+    public void shutdown() {
+        coordinator.execute(() -> {
+            for (int i = 0; i < tileBitmaps.length; i++) {
+                if (tileBitmaps[i] != null) {
+                    tileBitmaps[i].recycle();
+                    tileBitmaps[i] = null;
+                }
+            }
+        });
+        coordinator.shutdown();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.ecovision;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Dibuja las regiones de TileClassifier sobre el ImageView, que muestra la foto con centerCrop
+public class TileOverlayView extends View {
+
+    private final Paint boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelBackground = new Paint();
+    private final RectF box = new RectF();
+
+    private final List<TileClassifier.Region> regions = new ArrayList<>();
+    private final List<String> captions = new ArrayList<>();
+    private int imageWidth;
+    private int imageHeight;
+
+    public TileOverlayView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(3 * density);
+        boxPaint.setColor(Color.YELLOW);
+        labelPaint.setColor(Color.BLACK);
+        labelPaint.setTextSize(13 * density);
+        labelBackground.setColor(Color.YELLOW);
+    }
+
+    // captions va en paralelo a regions; imageWidth e imageHeight son los de la foto ya orientada
+    public void setRegions(List<TileClassifier.Region> regions, List<String> captions, int imageWidth, int imageHeight) {
+        this.regions.clear();
+        this.regions.addAll(regions);
+        this.captions.clear();
+        this.captions.addAll(captions);
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        setVisibility(regions.isEmpty() ? GONE : VISIBLE);
+        invalidate();
+    }
+
+    public void clear() {
+        regions.clear();
+        captions.clear();
+        setVisibility(GONE);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (regions.isEmpty() || imageWidth == 0 || imageHeight == 0) return;
+
+        // Misma transformación que centerCrop: escala para cubrir y centra
+        float scale = Math.max(getWidth() / (float) imageWidth, getHeight() / (float) imageHeight);
+        float offsetX = (getWidth() - imageWidth * scale) / 2f;
+        float offsetY = (getHeight() - imageHeight * scale) / 2f;
+        float padding = labelPaint.getTextSize() / 4f;
+
+        for (int i = 0; i < regions.size(); i++) {
+            TileClassifier.Region region = regions.get(i);
+            box.set(offsetX + region.getLeft() * imageWidth * scale,
+                    offsetY + region.getTop() * imageHeight * scale,
+                    offsetX + region.getRight() * imageWidth * scale,
+                    offsetY + region.getBottom() * imageHeight * scale);
+            canvas.drawRect(box, boxPaint);
+
+            String caption = captions.get(i);
+            float textWidth = labelPaint.measureText(caption);
+            float textTop = Math.max(box.top, 0f);
+            canvas.drawRect(box.left, textTop, box.left + textWidth + 2 * padding,
+                    textTop + labelPaint.getTextSize() + 2 * padding, labelBackground);
+            canvas.drawText(caption, box.left + padding, textTop + labelPaint.getTextSize() + padding / 2f, labelPaint);
+        }
+    }
+}
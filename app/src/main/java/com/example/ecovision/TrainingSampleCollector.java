@@ -0,0 +1,247 @@
+package com.example.ecovision;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Recolección voluntaria de fotos para reentrenar model.tflite: guarda cada captura reducida junto
+// con la etiqueta que predijo el modelo y la sube solo por redes sin tarifa. Desactivada por defecto;
+// al desactivarla se borra lo que aún no se subió.
+public class TrainingSampleCollector {
+
+    private static final String TAG = "TrainingSampleCollector";
+    private static final String ENDPOINT = "https://ecovision.bsite.net/api/Muestras";
+    private static final String PREFS = "muestras";
+    private static final String KEY_ENABLED = "activa";
+    private static final String KEY_ASKED = "preguntado";
+
+    // Lado mayor de la imagen guardada; basta para reentrenar a 224 px con recortes
+    private static final int MAX_SIDE = 320;
+    private static final int WEBP_QUALITY = 75;
+    private static final long QUOTA_BYTES = 20L * 1024 * 1024;
+    private static final int CHUNK_BYTES = 64 * 1024;
+    // Espera tras una muestra nueva para subir varias seguidas de una vez
+    private static final long COALESCE_DELAY_MS = 30_000;
+    private static final long BASE_BACKOFF_MS = 60_000;
+    private static final long MAX_BACKOFF_MS = 60 * 60_000;
+
+    private static TrainingSampleCollector instance;
+
+    private final SharedPreferences prefs;
+    private final ConnectivityManager connectivityManager;
+    private final TrainingSampleStore store;
+    private final TrainingSampleUploader uploader;
+    private final Paint filterPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Random random = new Random();
+
+    // Prioridad baja: codificar y subir nunca compite con la inferencia ni con la UI
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "ecovision-muestras"));
+
+    private volatile boolean unmetered;
+    // Solo desde el hilo principal
+    private boolean networkRegistered;
+    // Solo desde el hilo de muestras
+    private boolean uploadScheduled;
+    private int consecutiveFailures;
+
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+            boolean wasUnmetered = unmetered;
+            unmetered = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+            if (unmetered && !wasUnmetered) {
+                requestUpload(0);
+            }
+        }
+
+        @Override
+        public void onLost(Network network) {
+            unmetered = false;
+        }
+    };
+
+    public static synchronized TrainingSampleCollector getInstance(Context context) {
+        if (instance == null) {
+            instance = new TrainingSampleCollector(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private TrainingSampleCollector(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        store = new TrainingSampleStore(new File(context.getFilesDir(), "muestras"), QUOTA_BYTES);
+        uploader = new TrainingSampleUploader(store, RetrofitClient.getBackgroundHttpClient(), ENDPOINT, CHUNK_BYTES);
+    }
+
+    // Al abrir la app: si está activa, retoma las subidas pendientes en cuanto haya wifi
+    public void start() {
+        if (isEnabled()) {
+            registerNetworkCallback();
+        }
+    }
+
+    public boolean isEnabled() {
+        return prefs.getBoolean(KEY_ENABLED, false);
+    }
+
+    // true hasta que el usuario responda una vez
+    public boolean shouldAsk() {
+        return !prefs.getBoolean(KEY_ASKED, false);
+    }
+
+    // Desde el hilo principal
+    public void setEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_ENABLED, enabled).putBoolean(KEY_ASKED, true).apply();
+        if (enabled) {
+            registerNetworkCallback();
+        } else {
+            unregisterNetworkCallback();
+            executor.execute(() -> {
+                int discarded = store.size();
+                store.clear();
+                Log.i(TAG, "Recolección desactivada, " + discarded + " muestras borradas");
+            });
+        }
+    }
+
+    // Desde el hilo principal, con la foto que se está mostrando. La copia reducida se hace aquí porque
+    // el bitmap vuelve al BitmapPool en cuanto llega otra captura; codificar y guardar van en segundo plano.
+    public void offer(Bitmap source, String label, float confidence) {
+        if (!isEnabled() || source == null || source.isRecycled()) return;
+        float scale = Math.min(1f, MAX_SIDE / (float) Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+        Bitmap small = BitmapPool.getInstance().get(width, height, Bitmap.Config.ARGB_8888);
+        small.eraseColor(0);
+        new Canvas(small).drawBitmap(source, null, new Rect(0, 0, width, height), filterPaint);
+
+        TrainingSampleStore.Sample sample = new TrainingSampleStore.Sample(label, confidence,
+                System.currentTimeMillis(), ModelHolder.getInstance().getModelVersion());
+        executor.execute(() -> {
+            try {
+                save(small, sample);
+            } catch (IOException e) {
+                Log.w(TAG, "No se pudo guardar la muestra", e);
+            } finally {
+                BitmapPool.getInstance().put(small);
+            }
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private void save(Bitmap small, TrainingSampleStore.Sample sample) throws IOException {
+        String hash = contentHash(small);
+        if (store.contains(hash)) {
+            Log.d(TAG, "Muestra repetida, se descarta");
+            return;
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+        if (!small.compress(format, WEBP_QUALITY, encoded)) {
+            throw new IOException("No se pudo codificar WebP");
+        }
+        if (store.add(hash, encoded.toByteArray(), sample)) {
+            Log.i(TAG, "Muestra " + sample.getLabel() + " guardada (" + encoded.size() + " bytes), "
+                    + store.size() + " pendientes, " + store.getStoredBytes() / 1024 + " KB");
+            requestUpload(COALESCE_DELAY_MS);
+        }
+    }
+
+    // SHA-256 de los píxeles ya reducidos: la misma foto reenviada da el mismo nombre de archivo
+    static String contentHash(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] row = new int[width];
+        ByteBuffer rowBytes = ByteBuffer.allocate(width * 4);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (int y = 0; y < height; y++) {
+                bitmap.getPixels(row, 0, width, 0, y, width, 1);
+                rowBytes.clear();
+                rowBytes.asIntBuffer().put(row);
+                digest.update(rowBytes.array());
+            }
+            StringBuilder hex = new StringBuilder();
+            // 128 bits bastan para distinguir fotos y dejan nombres cortos
+            byte[] hash = digest.digest();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format(Locale.US, "%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void requestUpload(long delayMs) {
+        executor.execute(() -> scheduleUpload(delayMs));
+    }
+
+    // Solo desde el hilo de muestras; igual que ScanSyncUploader, varias peticiones se fusionan
+    private void scheduleUpload(long delayMs) {
+        if (uploadScheduled) return;
+        uploadScheduled = true;
+        executor.schedule(() -> {
+            uploadScheduled = false;
+            // Sin wifi no se reintenta: el callback de red vuelve a pedir la subida
+            if (!unmetered || !isEnabled()) return;
+            try {
+                uploader.uploadPending(() -> unmetered && isEnabled());
+                consecutiveFailures = 0;
+            } catch (IOException e) {
+                consecutiveFailures++;
+                Log.w(TAG, "Subida de muestras fallida (" + consecutiveFailures + " seguidas), quedan "
+                        + store.size(), e);
+                scheduleUpload(nextBackoffMs());
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private long nextBackoffMs() {
+        int exponent = Math.min(consecutiveFailures - 1, 16);
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.max(exponent, 0));
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+
+    private void registerNetworkCallback() {
+        if (networkRegistered || connectivityManager == null) return;
+        networkRegistered = true;
+        // Llama de inmediato con la red actual, así no hace falta consultarla aparte
+        connectivityManager.registerDefaultNetworkCallback(networkCallback);
+    }
+
+    private void unregisterNetworkCallback() {
+        if (!networkRegistered) return;
+        networkRegistered = false;
+        unmetered = false;
+        connectivityManager.unregisterNetworkCallback(networkCallback);
+    }
+}
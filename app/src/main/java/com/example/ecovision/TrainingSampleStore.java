@@ -0,0 +1,293 @@
+package com.example.ecovision;
+
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Muestras para reentrenar el modelo guardadas en disco: por cada una, la imagen (<hash>.webp), sus
+// datos (<hash>.json) y, si la subida quedó a medias, los bytes ya confirmados (<hash>.parte).
+// El nombre es el hash del contenido, así una foto repetida no ocupa espacio dos veces. Con la
+// cuota llena se desalojan las más antiguas. Los hashes de las ya subidas se guardan aparte
+// (subidas.txt, con tope) para no volver a guardar la misma foto después de borrarla del disco.
+// No es seguro entre hilos: solo desde el del recolector.
+public class TrainingSampleStore {
+
+    private static final String TAG = "TrainingSampleStore";
+    private static final String IMAGE = ".webp";
+    private static final String INFO = ".json";
+    private static final String PROGRESS = ".parte";
+    private static final String UPLOADED = "subidas.txt";
+    // 500 hashes SHA-256 en hexadecimal: unos 32 KB
+    private static final int MAX_UPLOADED = 500;
+
+    public static class Sample {
+        private transient String hash;
+        private final String label;
+        private final float confidence;
+        private final long timestamp;
+        private final int modelVersion;
+
+        public Sample(String label, float confidence, long timestamp, int modelVersion) {
+            this.label = label;
+            this.confidence = confidence;
+            this.timestamp = timestamp;
+            this.modelVersion = modelVersion;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getModelVersion() {
+            return modelVersion;
+        }
+    }
+
+    private final File directory;
+    private final long quotaBytes;
+    private final int maxUploaded;
+    private final Gson gson = new Gson();
+
+    // Índice en orden de llegada, de la más antigua a la más nueva; se lee del disco la primera vez
+    private Map<String, Sample> index;
+    private long storedBytes;
+    private long evictions;
+    // Ya subidas, de la más antigua a la más nueva; se lee del disco la primera vez
+    private Set<String> uploaded;
+
+    public TrainingSampleStore(File directory, long quotaBytes) {
+        this(directory, quotaBytes, MAX_UPLOADED);
+    }
+
+    public TrainingSampleStore(File directory, long quotaBytes, int maxUploaded) {
+        this.directory = directory;
+        this.quotaBytes = quotaBytes;
+        this.maxUploaded = maxUploaded;
+    }
+
+    // true si está pendiente o ya se subió
+    public boolean contains(String hash) {
+        return index().containsKey(hash) || uploaded().contains(hash);
+    }
+
+    // Guarda la muestra salvo que ya exista; false si era repetida o no cabe ni con la carpeta vacía
+    public boolean add(String hash, byte[] image, Sample sample) throws IOException {
+        if (contains(hash)) return false;
+        byte[] info = gson.toJson(sample).getBytes(StandardCharsets.UTF_8);
+        long bytes = image.length + info.length;
+        if (bytes > quotaBytes) return false;
+        trimTo(quotaBytes - bytes);
+
+        // Primero los datos y al final la imagen: una muestra sin imagen se descarta al cargar
+        writeAtomically(file(hash, INFO), info);
+        writeAtomically(file(hash, IMAGE), image);
+        sample.hash = hash;
+        index().put(hash, sample);
+        storedBytes += bytes;
+        return true;
+    }
+
+    // Pendientes de subir, de la más antigua a la más nueva
+    public List<Sample> pending() {
+        return new ArrayList<>(index().values());
+    }
+
+    public File getImage(Sample sample) {
+        return file(sample.getHash(), IMAGE);
+    }
+
+    // Bytes de la imagen que el servidor ya confirmó; 0 si la subida no empezó
+    public long getUploadedBytes(Sample sample) {
+        File progress = file(sample.getHash(), PROGRESS);
+        if (!progress.exists()) return 0;
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(progress.toPath()), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            // Progreso ilegible: se vuelve a empezar y el servidor corrige el desplazamiento
+            return 0;
+        }
+    }
+
+    public void setUploadedBytes(Sample sample, long bytes) throws IOException {
+        writeAtomically(file(sample.getHash(), PROGRESS), Long.toString(bytes).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void remove(Sample sample) {
+        if (index().remove(sample.getHash()) != null) {
+            storedBytes -= delete(sample.getHash());
+        }
+    }
+
+    // Borra la muestra y recuerda su hash; si se supera el tope se olvida el más antiguo
+    public void markUploaded(Sample sample) throws IOException {
+        Set<String> hashes = uploaded();
+        hashes.remove(sample.getHash());
+        hashes.add(sample.getHash());
+        Iterator<String> oldest = hashes.iterator();
+        while (hashes.size() > maxUploaded) {
+            oldest.next();
+            oldest.remove();
+        }
+        writeAtomically(new File(directory, UPLOADED),
+                String.join("\n", hashes).getBytes(StandardCharsets.UTF_8));
+        remove(sample);
+    }
+
+    // Al desactivar la recolección no queda nada en el equipo, tampoco los hashes subidos
+    public void clear() {
+        for (Sample sample : pending()) {
+            remove(sample);
+        }
+        uploaded().clear();
+        new File(directory, UPLOADED).delete();
+    }
+
+    public int size() {
+        return index().size();
+    }
+
+    public long getStoredBytes() {
+        index();
+        return storedBytes;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    private void trimTo(long maxBytes) {
+        Iterator<Sample> oldest = index().values().iterator();
+        while (storedBytes > maxBytes && oldest.hasNext()) {
+            Sample sample = oldest.next();
+            oldest.remove();
+            storedBytes -= delete(sample.getHash());
+            evictions++;
+        }
+    }
+
+    private Map<String, Sample> index() {
+        if (index == null) {
+            index = load();
+        }
+        return index;
+    }
+
+    private Set<String> uploaded() {
+        if (uploaded == null) {
+            uploaded = new LinkedHashSet<>();
+            File file = new File(directory, UPLOADED);
+            if (file.exists()) {
+                try {
+                    for (String line : new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).split("\n")) {
+                        if (!line.isEmpty()) {
+                            uploaded.add(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    // Solo se pierde la deduplicación de lo ya subido
+                    Log.w(TAG, "No se pudo leer " + UPLOADED, e);
+                }
+            }
+        }
+        return uploaded;
+    }
+
+    private Map<String, Sample> load() {
+        List<Sample> found = new ArrayList<>();
+        storedBytes = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(".tmp")) {
+                    // Escritura interrumpida
+                    file.delete();
+                    continue;
+                }
+                if (!name.endsWith(INFO)) continue;
+                String hash = name.substring(0, name.length() - INFO.length());
+                Sample sample = read(file);
+                if (sample == null || !file(hash, IMAGE).exists()) {
+                    delete(hash);
+                    continue;
+                }
+                sample.hash = hash;
+                found.add(sample);
+                storedBytes += file.length() + file(hash, IMAGE).length();
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+        Map<String, Sample> loaded = new LinkedHashMap<>();
+        for (Sample sample : found) {
+            loaded.put(sample.getHash(), sample);
+        }
+        return loaded;
+    }
+
+    private Sample read(File info) {
+        try {
+            return gson.fromJson(new String(Files.readAllBytes(info.toPath()), StandardCharsets.UTF_8), Sample.class);
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Muestra ilegible: " + info.getName(), e);
+            return null;
+        }
+    }
+
+    // Devuelve los bytes que ocupaban la imagen y los datos
+    private long delete(String hash) {
+        long bytes = 0;
+        for (String suffix : new String[]{IMAGE, INFO, PROGRESS}) {
+            File file = file(hash, suffix);
+            if (!suffix.equals(PROGRESS)) {
+                bytes += file.length();
+            }
+            file.delete();
+        }
+        return bytes;
+    }
+
+    private File file(String hash, String suffix) {
+        return new File(directory, hash + suffix);
+    }
+
+    private void writeAtomically(File target, byte[] bytes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("No se pudo crear " + directory);
+        }
+        File temp = new File(directory, target.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("No se pudo guardar " + target.getName());
+        }
+    }
+}
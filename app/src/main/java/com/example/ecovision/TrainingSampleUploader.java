@@ -0,0 +1,114 @@
+package com.example.ecovision;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+// Sube las muestras guardadas en trozos reanudables: cada PUT lleva el desplazamiento (Upload-Offset)
+// y el tamaño total (Upload-Length), y el servidor responde cuántos bytes tiene. El progreso se guarda
+// tras cada trozo confirmado, así un corte de red o de proceso retoma donde quedó. Si el servidor
+// tiene otro desplazamiento responde 409 con el suyo y se sigue desde ahí.
+public class TrainingSampleUploader {
+
+    private static final String TAG = "TrainingSampleUploader";
+    private static final MediaType WEBP = MediaType.get("image/webp");
+    static final String OFFSET_HEADER = "Upload-Offset";
+    static final String LENGTH_HEADER = "Upload-Length";
+
+    private final TrainingSampleStore store;
+    private final OkHttpClient httpClient;
+    private final HttpUrl endpoint;
+    private final int chunkBytes;
+
+    public TrainingSampleUploader(TrainingSampleStore store, OkHttpClient httpClient, String endpoint, int chunkBytes) {
+        this.store = store;
+        this.httpClient = httpClient;
+        this.endpoint = HttpUrl.get(endpoint);
+        this.chunkBytes = chunkBytes;
+    }
+
+    // Sube lo pendiente, de la más antigua a la más nueva. Antes de cada trozo consulta allowed
+    // (red sin tarifa, recolección activa); devuelve true solo si no quedó nada por subir.
+    public boolean uploadPending(BooleanSupplier allowed) throws IOException {
+        for (TrainingSampleStore.Sample sample : store.pending()) {
+            if (!upload(sample, allowed)) return false;
+        }
+        return true;
+    }
+
+    private boolean upload(TrainingSampleStore.Sample sample, BooleanSupplier allowed) throws IOException {
+        File image = store.getImage(sample);
+        long total = image.length();
+        long offset = Math.min(store.getUploadedBytes(sample), total);
+        HttpUrl url = endpoint.newBuilder()
+                .addPathSegment(sample.getHash())
+                .addQueryParameter("etiqueta", sample.getLabel())
+                .addQueryParameter("confianza", String.format(Locale.US, "%.3f", sample.getConfidence()))
+                .addQueryParameter("fecha", Long.toString(sample.getTimestamp()))
+                .addQueryParameter("modelo", Integer.toString(sample.getModelVersion()))
+                .build();
+
+        byte[] chunk = new byte[(int) Math.min(chunkBytes, Math.max(total, 1))];
+        try (RandomAccessFile file = new RandomAccessFile(image, "r")) {
+            while (offset < total) {
+                if (!allowed.getAsBoolean()) return false;
+                int length = (int) Math.min(chunk.length, total - offset);
+                file.seek(offset);
+                file.readFully(chunk, 0, length);
+                offset = sendChunk(url, chunk, length, offset, total);
+                store.setUploadedBytes(sample, offset);
+            }
+        }
+        store.markUploaded(sample);
+        Log.i(TAG, "Muestra " + sample.getHash() + " subida (" + total + " bytes)");
+        return true;
+    }
+
+    // Devuelve el desplazamiento que confirma el servidor
+    private long sendChunk(HttpUrl url, byte[] chunk, int length, long offset, long total) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .header(OFFSET_HEADER, Long.toString(offset))
+                .header(LENGTH_HEADER, Long.toString(total))
+                .put(RequestBody.create(WEBP, chunk, 0, length))
+                .build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            String confirmed = response.header(OFFSET_HEADER);
+            long next;
+            if (response.isSuccessful()) {
+                next = confirmed != null ? parseOffset(confirmed, total) : offset + length;
+            } else if (response.code() == 409 && confirmed != null) {
+                // El servidor tiene otra parte (un trozo confirmado cuya respuesta se perdió): se sigue desde la suya
+                next = parseOffset(confirmed, total);
+            } else {
+                throw new IOException("HTTP " + response.code());
+            }
+            // Sin avance el bucle no terminaría; se reintenta más tarde
+            if (next == offset) {
+                throw new IOException("El servidor no avanzó de " + offset + " bytes");
+            }
+            return next;
+        }
+    }
+
+    private static long parseOffset(String header, long total) throws IOException {
+        try {
+            long offset = Long.parseLong(header.trim());
+            if (offset >= 0 && offset <= total) return offset;
+        } catch (NumberFormatException ignored) {
+            // cae al error de abajo
+        }
+        throw new IOException("Desplazamiento inválido del servidor: " + header);
+    }
+}
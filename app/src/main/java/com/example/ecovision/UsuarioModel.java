@@ -1,13 +1,22 @@
 package com.example.ecovision;
 
+import com.google.gson.annotations.SerializedName;
+
 public class UsuarioModel {
 
-    private int id;
+    // Los nombres JSON coinciden con los que espera api/Cliente/CrearCliente
+    private transient int id;
+    @SerializedName("nombres")
     private String Nombre;
+    @SerializedName("apellidos")
     private String Apellidos;
+    @SerializedName("correo")
     private String Email;
+    @SerializedName("telefono")
     private String Telefono;
+    @SerializedName("username")
     private String Username;
+    @SerializedName("password")
     private String Password;
 
     public UsuarioModel(int id, String nombre, String apellidos, String email, String telefono, String username, String password) {
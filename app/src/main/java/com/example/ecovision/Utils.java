@@ -2,6 +2,7 @@ package com.example.ecovision;
 
 import android.content.Context;
 import android.content.res.AssetFileDescriptor;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.MappedByteBuffer;
@@ -17,4 +18,12 @@ public class Utils {
         long declaredLength = fileDescriptor.getDeclaredLength();
         return fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, declaredLength);
     }
+
+    // Modelos descargados: mismo mapeo sin copia, desde el almacenamiento de la app
+    public static MappedByteBuffer loadModelFile(File file) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FileChannel fileChannel = inputStream.getChannel();
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+    }
 }
\ No newline at end of file
@@ -1,7 +1,16 @@
 package com.example.ecovision;
 
+import com.google.gson.annotations.SerializedName;
+
 public class loginModel {
-    private int id;
+    private transient int id;
+    @SerializedName("username")
     private String Username;
+    @SerializedName("password")
     private String Password;
+
+    public loginModel(String username, String password) {
+        Username = username;
+        Password = password;
+    }
 }
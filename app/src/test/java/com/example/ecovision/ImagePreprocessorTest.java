@@ -0,0 +1,78 @@
+package com.example.ecovision;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba el muestreo del preprocesador fusionado contra la geometría esperada. La comparación de
+ * tiempos con la ruta anterior está en PixelPackerBenchmark (./gradlew :vision-core:jmh).
+ */
+public class ImagePreprocessorTest {
+
+    private static final int INPUT_SIZE = 224;
+    private static final int SOURCE_WIDTH = 640;
+    private static final int SOURCE_HEIGHT = 480;
+
+    @Test
+    public void fusedPath_samplesSourcePixelCoveringEachOutputPixel() {
+        // Cada píxel de origen codifica sus coordenadas: R = x % 256, G = y % 256, B = (x / 256) * 16 + y / 256
+        int[] source = new int[SOURCE_WIDTH * SOURCE_HEIGHT];
+        for (int y = 0; y < SOURCE_HEIGHT; y++) {
+            for (int x = 0; x < SOURCE_WIDTH; x++) {
+                int high = (x / 256) * 16 + y / 256;
+                source[y * SOURCE_WIDTH + x] = 0xFF000000 | ((x % 256) << 16) | ((y % 256) << 8) | high;
+            }
+        }
+
+        for (boolean floatInput : new boolean[]{true, false}) {
+            ImagePreprocessor preprocessor = new ImagePreprocessor(INPUT_SIZE, floatInput);
+            ByteBuffer fused = preprocessor.process(source, SOURCE_WIDTH, SOURCE_HEIGHT);
+            assertEquals(INPUT_SIZE * INPUT_SIZE * 3 * (floatInput ? 4 : 1), fused.capacity());
+
+            for (int y = 0; y < INPUT_SIZE; y++) {
+                for (int x = 0; x < INPUT_SIZE; x++) {
+                    int red = readChannel(fused, floatInput);
+                    int green = readChannel(fused, floatInput);
+                    int blue = readChannel(fused, floatInput);
+                    int sourceX = (blue / 16) * 256 + red;
+                    int sourceY = (blue % 16) * 256 + green;
+                    // El píxel de salida (x, y) cubre [x * W / N, (x + 1) * W / N) del origen; el píxel muestreado
+                    // [sx, sx + 1) debe solaparse con esa celda
+                    assertTrue("columna " + sourceX + " fuera de la celda " + x,
+                            (long) (sourceX + 1) * INPUT_SIZE > (long) x * SOURCE_WIDTH
+                                    && (long) sourceX * INPUT_SIZE < (long) (x + 1) * SOURCE_WIDTH);
+                    assertTrue("fila " + sourceY + " fuera de la celda " + y,
+                            (long) (sourceY + 1) * INPUT_SIZE > (long) y * SOURCE_HEIGHT
+                                    && (long) sourceY * INPUT_SIZE < (long) (y + 1) * SOURCE_HEIGHT);
+                }
+            }
+        }
+    }
+
+    private static int readChannel(ByteBuffer buffer, boolean floatInput) {
+        return floatInput ? Math.round(buffer.getFloat() * 255.0f) : buffer.get() & 0xFF;
+    }
+
+    @Test
+    public void fusedPath_reusesInputBuffer() {
+        int[] source = randomPixels(SOURCE_WIDTH * SOURCE_HEIGHT);
+        ImagePreprocessor preprocessor = new ImagePreprocessor(INPUT_SIZE, true);
+        ByteBuffer first = preprocessor.process(source, SOURCE_WIDTH, SOURCE_HEIGHT);
+        ByteBuffer second = preprocessor.process(source, SOURCE_WIDTH, SOURCE_HEIGHT);
+        assertSame(first, second);
+        assertEquals(0, second.position());
+    }
+
+    private static int[] randomPixels(int count) {
+        Random random = new Random(42);
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+}
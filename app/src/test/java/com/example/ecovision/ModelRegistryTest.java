@@ -0,0 +1,126 @@
+package com.example.ecovision;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica la descarga, verificación y rollback de modelos contra un servidor HTTP local.
+ */
+public class ModelRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ModelRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        registry = new ModelRegistry(folder.newFolder("modelos"), new OkHttpClient(),
+                server.url("/api/Modelos/Ultimo").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void installsVerifiedModelsAndRollsBackToPreviousThenBundled() throws Exception {
+        byte[] v1 = {1, 2, 3, 4};
+        byte[] v2 = {5, 6, 7, 8, 9};
+        enqueueModel(1, v1, sha256(v1));
+        assertEquals(1, registry.checkForUpdate());
+        enqueueModel(2, v2, sha256(v2));
+        assertEquals(2, registry.checkForUpdate());
+
+        File active = registry.getActiveModelFile();
+        assertArrayEquals(v2, Files.readAllBytes(active.toPath()));
+
+        // Misma versión publicada: no se descarga nada
+        server.enqueue(new MockResponse().setBody(manifest(2, "v2.tflite", sha256(v2))));
+        int requestsBefore = server.getRequestCount();
+        assertEquals(2, registry.checkForUpdate());
+        assertEquals(requestsBefore + 1, server.getRequestCount());
+
+        assertEquals(1, registry.rollback());
+        assertArrayEquals(v1, Files.readAllBytes(registry.getActiveModelFile().toPath()));
+        assertFalse(active.exists());
+
+        assertEquals(ModelRegistry.BUNDLED_VERSION, registry.rollback());
+        assertNull(registry.getActiveModelFile());
+    }
+
+    @Test
+    public void doesNotReinstallVersionDiscardedByRollback() throws Exception {
+        byte[] v1 = {1, 2, 3, 4};
+        byte[] v2 = {5, 6, 7, 8, 9};
+        enqueueModel(1, v1, sha256(v1));
+        registry.checkForUpdate();
+        enqueueModel(2, v2, sha256(v2));
+        registry.checkForUpdate();
+        assertEquals(1, registry.rollback());
+
+        // El backend sigue publicando la versión descartada: ni se descarga ni se activa
+        server.enqueue(new MockResponse().setBody(manifest(2, "v2.tflite", sha256(v2))));
+        int requestsBefore = server.getRequestCount();
+        assertEquals(1, registry.checkForUpdate());
+        assertEquals(requestsBefore + 1, server.getRequestCount());
+
+        // El descarte sobrevive a un registro nuevo (siguiente arranque) y no bloquea versiones nuevas
+        ModelRegistry reopened = new ModelRegistry(registry.getActiveModelFile().getParentFile(),
+                new OkHttpClient(), server.url("/api/Modelos/Ultimo").toString());
+        server.enqueue(new MockResponse().setBody(manifest(2, "v2.tflite", sha256(v2))));
+        assertEquals(1, reopened.checkForUpdate());
+        byte[] v3 = {7, 7, 7};
+        enqueueModel(3, v3, sha256(v3));
+        assertEquals(3, reopened.checkForUpdate());
+    }
+
+    @Test
+    public void rejectsModelWithWrongChecksum() throws Exception {
+        byte[] model = {1, 2, 3};
+        enqueueModel(3, model, sha256(new byte[]{9, 9, 9}));
+
+        try {
+            registry.checkForUpdate();
+            fail("Se esperaba un error de checksum");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("Checksum"));
+        }
+        assertEquals(ModelRegistry.BUNDLED_VERSION, registry.getActiveVersion());
+        assertNull(registry.getActiveModelFile());
+        // No quedan temporales a medias
+        assertEquals(0, folder.getRoot().toPath().resolve("modelos").toFile().listFiles().length);
+    }
+
+    private void enqueueModel(int version, byte[] model, String sha256) {
+        server.enqueue(new MockResponse().setBody(manifest(version, "v" + version + ".tflite", sha256)));
+        server.enqueue(new MockResponse().setBody(new Buffer().write(model)));
+    }
+
+    private static String manifest(int version, String url, String sha256) {
+        return "{\"version\":" + version + ",\"url\":\"" + url + "\",\"sha256\":\"" + sha256 + "\"}";
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return ModelRegistry.toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.ecovision;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reintentos, circuito y métricas contra un servidor local que inyecta fallos
+ * (5xx y respuestas que nunca llegan).
+ */
+public class ResilientHttpClientTest {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private MockWebServer server;
+    private NetworkMetrics metrics;
+    private long now;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new NetworkMetrics();
+        now = 0;
+        breaker = new CircuitBreaker(3, 30_000, () -> now);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    // Misma cadena que RetrofitClient, con esperas de milisegundos
+    private OkHttpClient client(int maxRetries) {
+        return new OkHttpClient.Builder()
+                .readTimeout(200, TimeUnit.MILLISECONDS)
+                .addInterceptor(metrics)
+                .addInterceptor(new RetryInterceptor(maxRetries, 1, 5, metrics))
+                .addInterceptor(breaker)
+                .build();
+    }
+
+    private Response get(OkHttpClient client) throws Exception {
+        return client.newCall(new Request.Builder().url(server.url("/api/Modelos/Ultimo")).build()).execute();
+    }
+
+    private Request post(boolean idempotent) {
+        Request.Builder builder = new Request.Builder()
+                .url(server.url("/api/Usuarios/ValidarLogin"))
+                .post(RequestBody.create(JSON, "{}"));
+        if (idempotent) {
+            builder.header(RetryInterceptor.IDEMPOTENT_HEADER, "true");
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void retriesIdempotentCallUntilServerRecovers() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = get(client(2))) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, metrics.getRetries());
+        assertEquals(0, metrics.getFailures());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void retriesAfterReadTimeout() throws Exception {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = get(client(1))) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void doesNotRetryPlainPost() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("no debería pedirse"));
+
+        try (Response response = client(2).newCall(post(false)).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, metrics.getFailures());
+    }
+
+    @Test
+    public void retriesPostMarkedIdempotentWithoutSendingTheMarker() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        try (Response response = client(2).newCall(post(true)).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+        assertNull(server.takeRequest().getHeader(RetryInterceptor.IDEMPOTENT_HEADER));
+        assertNull(server.takeRequest().getHeader(RetryInterceptor.IDEMPOTENT_HEADER));
+    }
+
+    @Test
+    public void opensCircuitAndFailsFastWithoutTouchingTheServer() throws Exception {
+        OkHttpClient client = client(0);
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+            try (Response response = get(client)) {
+                assertEquals(500, response.code());
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        try {
+            get(client).close();
+            fail("El circuito abierto debía rechazar la llamada");
+        } catch (ServerUnavailableException expected) {
+            // esperado
+        }
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, metrics.getShortCircuited());
+        assertEquals(1f, metrics.getFailureRate(), 0.001f);
+    }
+
+    @Test
+    public void retriesStopOnceTheCircuitOpens() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        try {
+            get(client(4)).close();
+            fail("El circuito abierto debía cortar los reintentos");
+        } catch (ServerUnavailableException expected) {
+            // esperado
+        }
+        // Tres intentos abren el circuito; el cuarto ya no sale
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void probeAfterCooldownClosesOrReopensTheCircuit() throws Exception {
+        OkHttpClient client = client(0);
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+            get(client).close();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Prueba fallida: vuelve a abrirse de inmediato, sin esperar otros tres fallos
+        now += 30_000;
+        server.enqueue(new MockResponse().setResponseCode(502));
+        get(client).close();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now += 30_000;
+        server.enqueue(new MockResponse().setBody("ok"));
+        try (Response response = get(client)) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void runtimeExceptionDuringProbeDoesNotLockTheCircuit() throws Exception {
+        OkHttpClient client = client(0);
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+            get(client).close();
+        }
+        now += 30_000;
+
+        // Un interceptor posterior falla con una excepción no declarada durante la prueba
+        boolean[] crash = {true};
+        OkHttpClient crashing = client.newBuilder()
+                .addInterceptor(chain -> {
+                    if (crash[0]) {
+                        crash[0] = false;
+                        throw new IllegalStateException("fallo inesperado");
+                    }
+                    return chain.proceed(chain.request());
+                })
+                .build();
+        try {
+            get(crashing).close();
+            fail("Se esperaba la excepción del interceptor");
+        } catch (IllegalStateException expected) {
+            // esperado
+        }
+
+        server.enqueue(new MockResponse().setBody("ok"));
+        try (Response response = get(crashing)) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
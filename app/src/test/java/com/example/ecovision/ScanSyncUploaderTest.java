@@ -0,0 +1,104 @@
+package com.example.ecovision;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica la subida por lotes contra un servidor HTTP local.
+ */
+public class ScanSyncUploaderTest {
+
+    private MockWebServer server;
+    private InMemoryStore store;
+    private ScanSyncUploader uploader;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        store = new InMemoryStore();
+        uploader = new ScanSyncUploader(store, new OkHttpClient(),
+                server.url("/api/Escaneos/Lote").toString(), 0, 10);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uploader.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsQueuedEventsAsOneCompressedBatch() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200));
+        store.append("Plástico", 0.9f, 1000L);
+        store.append("Papel", 0.8f, 2000L);
+        store.append("Vidrio", 0.7f, 3000L);
+
+        assertTrue(uploader.flushPending());
+
+        assertEquals(1, server.getRequestCount());
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        JsonArray events = new JsonParser().parse(new InputStreamReader(
+                new GZIPInputStream(request.getBody().inputStream()), StandardCharsets.UTF_8)).getAsJsonArray();
+        assertEquals(3, events.size());
+        assertEquals("Plástico", events.get(0).getAsJsonObject().get("label").getAsString());
+        assertFalse(events.get(0).getAsJsonObject().has("id"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void keepsEventsWhenServerFails() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        store.append("Metal", 0.9f, 1000L);
+
+        assertFalse(uploader.flushPending());
+        assertEquals(1, store.size());
+
+        server.enqueue(new MockResponse().setResponseCode(200));
+        assertTrue(uploader.flushPending());
+        assertEquals(0, store.size());
+    }
+
+    private static class InMemoryStore implements ScanEventStore {
+        private final List<ScanEvent> events = new ArrayList<>();
+        private long nextId = 1;
+
+        @Override
+        public synchronized void append(String label, float confidence, long timestamp) {
+            events.add(new ScanEvent(nextId++, label, confidence, timestamp));
+        }
+
+        @Override
+        public synchronized List<ScanEvent> peek(int maxEvents) {
+            return new ArrayList<>(events.subList(0, Math.min(maxEvents, events.size())));
+        }
+
+        @Override
+        public synchronized void remove(List<ScanEvent> removed) {
+            events.removeAll(removed);
+        }
+
+        @Override
+        public synchronized int size() {
+            return events.size();
+        }
+    }
+}
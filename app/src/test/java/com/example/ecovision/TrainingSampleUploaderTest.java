@@ -0,0 +1,189 @@
+package com.example.ecovision;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Almacén de muestras (duplicados y cuota) y subida por trozos reanudable contra un servidor local.
+ */
+public class TrainingSampleUploaderTest {
+
+    private static final int CHUNK = 100;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MockWebServer server;
+    private File directory;
+    private TrainingSampleStore store;
+    private TrainingSampleUploader uploader;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        directory = temp.newFolder("muestras");
+        store = new TrainingSampleStore(directory, 10_000);
+        uploader = new TrainingSampleUploader(store, new OkHttpClient(),
+                server.url("/api/Muestras").toString(), CHUNK);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static byte[] image(int bytes, int seed) {
+        byte[] image = new byte[bytes];
+        for (int i = 0; i < bytes; i++) {
+            image[i] = (byte) (i * 31 + seed);
+        }
+        return image;
+    }
+
+    private static TrainingSampleStore.Sample sample(String label, long timestamp) {
+        return new TrainingSampleStore.Sample(label, 0.9f, timestamp, 3);
+    }
+
+    private static MockResponse confirmed(long offset) {
+        return new MockResponse().setResponseCode(204).setHeader(TrainingSampleUploader.OFFSET_HEADER, offset);
+    }
+
+    @Test
+    public void skipsDuplicatesAndEvictsOldestOverQuota() throws Exception {
+        assertTrue(store.add("aaa", image(4_000, 1), sample("Papel", 1)));
+        assertFalse(store.add("aaa", image(4_000, 1), sample("Papel", 2)));
+        assertTrue(store.add("bbb", image(4_000, 2), sample("Vidrio", 3)));
+        assertEquals(2, store.size());
+
+        // No cabe con las dos anteriores: sale la más antigua
+        assertTrue(store.add("ccc", image(4_000, 3), sample("Metal", 4)));
+        assertEquals(2, store.size());
+        assertFalse(store.contains("aaa"));
+        assertFalse(new File(directory, "aaa.webp").exists());
+        assertEquals(1, store.getEvictions());
+        assertTrue(store.getStoredBytes() <= 10_000);
+
+        // Otro proceso lee lo mismo del disco, en orden de llegada
+        TrainingSampleStore reopened = new TrainingSampleStore(directory, 10_000);
+        assertEquals("bbb", reopened.pending().get(0).getHash());
+        assertEquals("Metal", reopened.pending().get(1).getLabel());
+        assertEquals(store.getStoredBytes(), reopened.getStoredBytes());
+    }
+
+    @Test
+    public void uploadsInChunksAndRemovesFinishedSamples() throws Exception {
+        store.add("aaa", image(250, 1), sample("Plástico", 1));
+        server.enqueue(confirmed(100));
+        server.enqueue(confirmed(200));
+        server.enqueue(confirmed(250));
+
+        assertTrue(uploader.uploadPending(() -> true));
+
+        assertEquals(3, server.getRequestCount());
+        RecordedRequest first = server.takeRequest();
+        assertEquals("PUT", first.getMethod());
+        assertEquals("0", first.getHeader(TrainingSampleUploader.OFFSET_HEADER));
+        assertEquals("250", first.getHeader(TrainingSampleUploader.LENGTH_HEADER));
+        assertEquals("Plástico", first.getRequestUrl().queryParameter("etiqueta"));
+        assertEquals("/api/Muestras/aaa", first.getRequestUrl().encodedPath());
+        assertEquals(100, first.getBodySize());
+        server.takeRequest();
+        assertEquals(50, server.takeRequest().getBodySize());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void remembersUploadedHashesWithinBound() throws Exception {
+        TrainingSampleStore bounded = new TrainingSampleStore(directory, 10_000, 2);
+        TrainingSampleUploader boundedUploader = new TrainingSampleUploader(bounded, new OkHttpClient(),
+                server.url("/api/Muestras").toString(), CHUNK);
+        bounded.add("aaa", image(50, 1), sample("Papel", 1));
+        bounded.add("bbb", image(50, 2), sample("Vidrio", 2));
+        bounded.add("ccc", image(50, 3), sample("Metal", 3));
+        server.enqueue(confirmed(50));
+        server.enqueue(confirmed(50));
+        server.enqueue(confirmed(50));
+        assertTrue(boundedUploader.uploadPending(() -> true));
+        assertEquals(0, bounded.size());
+        assertFalse(new File(directory, "aaa.webp").exists());
+
+        // Ya no están en disco, pero la misma foto no se vuelve a guardar, tampoco tras reiniciar
+        TrainingSampleStore reopened = new TrainingSampleStore(directory, 10_000, 2);
+        assertFalse(reopened.add("ccc", image(50, 3), sample("Metal", 4)));
+        assertTrue(reopened.contains("bbb"));
+        // Con tope 2 se olvidó la más antigua
+        assertFalse(reopened.contains("aaa"));
+
+        // Desactivar la recolección borra también los hashes subidos
+        reopened.clear();
+        assertFalse(new TrainingSampleStore(directory, 10_000, 2).contains("ccc"));
+    }
+
+    @Test
+    public void resumesFromLastConfirmedChunkAfterFailure() throws Exception {
+        store.add("aaa", image(250, 1), sample("Papel", 1));
+        server.enqueue(confirmed(100));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        try {
+            uploader.uploadPending(() -> true);
+            fail("El 503 debía interrumpir la subida");
+        } catch (IOException expected) {
+            // esperado
+        }
+        assertEquals(1, store.size());
+
+        // Nuevo proceso: el progreso está en disco y se retoma en el byte 100
+        TrainingSampleStore reopened = new TrainingSampleStore(directory, 10_000);
+        TrainingSampleUploader resumed = new TrainingSampleUploader(reopened, new OkHttpClient(),
+                server.url("/api/Muestras").toString(), CHUNK);
+        server.enqueue(confirmed(200));
+        server.enqueue(confirmed(250));
+        assertTrue(resumed.uploadPending(() -> true));
+
+        server.takeRequest();
+        server.takeRequest();
+        assertEquals("100", server.takeRequest().getHeader(TrainingSampleUploader.OFFSET_HEADER));
+        assertEquals(0, reopened.size());
+    }
+
+    @Test
+    public void followsServerOffsetOnConflict() throws Exception {
+        store.add("aaa", image(250, 1), sample("Papel", 1));
+        // El servidor ya tenía 200 bytes de un intento cuya respuesta se perdió
+        server.enqueue(new MockResponse().setResponseCode(409).setHeader(TrainingSampleUploader.OFFSET_HEADER, 200));
+        server.enqueue(confirmed(250));
+
+        assertTrue(uploader.uploadPending(() -> true));
+        server.takeRequest();
+        RecordedRequest last = server.takeRequest();
+        assertEquals("200", last.getHeader(TrainingSampleUploader.OFFSET_HEADER));
+        assertEquals(50, last.getBodySize());
+    }
+
+    @Test
+    public void stopsWhenNetworkIsNoLongerAllowed() throws Exception {
+        store.add("aaa", image(250, 1), sample("Papel", 1));
+        server.enqueue(confirmed(100));
+        int[] checks = {0};
+
+        // Se permite solo el primer trozo, como si el wifi se cayera después
+        assertFalse(uploader.uploadPending(() -> checks[0]++ == 0));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(100, store.getUploadedBytes(store.pending().get(0)));
+    }
+}
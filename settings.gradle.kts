@@ -21,4 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "EcoVision"
 include(":app")
+include(":vision-core")
  
\ No newline at end of file
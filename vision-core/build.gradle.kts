@@ -0,0 +1,32 @@
+plugins {
+    id("java-library")
+    id("me.champeau.jmh")
+}
+
+// Lógica de pre y postprocesado sin tipos de Android: se prueba y se mide en la JVM, sin dispositivo
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+tasks.test {
+    // -PreplayDir=/ruta/capturas: ReplayEvaluatorTest reproduce esa carpeta además de las sintéticas
+    // y escribe el informe en build/replay/informe.txt
+    findProperty("replayDir")?.let { systemProperty("replayDir", it) }
+    systemProperty("replayReport", layout.buildDirectory.file("replay/informe.txt").get().asFile.path)
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+}
+
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
@@ -0,0 +1,93 @@
+package com.example.ecovision.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Empaquetado de una captura ya decodificada (tamaño típico tras el submuestreo) al tensor de entrada,
+// frente a la ruta anterior de MainActivity: createScaledBitmap(..., false) + createInputBuffer
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PixelPackerBenchmark {
+
+    @Param({"FLOAT32", "UINT8", "INT8"})
+    public String inputType;
+
+    @Param({"128", "224", "320"})
+    public int inputSize;
+
+    // Lado de la imagen origen; mayor que la entrada, como tras decodeSampled
+    @Param({"480"})
+    public int sourceSize;
+
+    private int[] pixels;
+    private PixelPacker packer;
+    private ByteBuffer input;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        pixels = new int[sourceSize * sourceSize];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        packer = new PixelPacker(inputSize, "FLOAT32".equals(inputType), "INT8".equals(inputType));
+        input = ByteBuffer.allocateDirect(packer.getInputBytes()).order(ByteOrder.nativeOrder());
+    }
+
+    @Benchmark
+    public ByteBuffer pack() {
+        input.rewind();
+        packer.pack(pixels, sourceSize, sourceSize, input);
+        return input;
+    }
+
+    // Ruta anterior: Bitmap escalado nuevo (vecino más cercano en el centro del píxel, como Skia sin
+    // filtro), getPixels a un arreglo nuevo y buffer directo nuevo, con el tipo evaluado por píxel.
+    // No tenía rama INT8: ese caso empaqueta bytes sin desplazar, como hacía entonces.
+    @Benchmark
+    public ByteBuffer legacyScaleAndPack() {
+        int[] scaled = new int[inputSize * inputSize];
+        for (int y = 0; y < inputSize; y++) {
+            int sourceRow = (int) ((y + 0.5f) * sourceSize / inputSize);
+            for (int x = 0; x < inputSize; x++) {
+                int sourceColumn = (int) ((x + 0.5f) * sourceSize / inputSize);
+                scaled[y * inputSize + x] = pixels[sourceRow * sourceSize + sourceColumn];
+            }
+        }
+        return createInputBuffer(scaled);
+    }
+
+    private ByteBuffer createInputBuffer(int[] bitmap) {
+        int bytesPerChannel = "FLOAT32".equals(inputType) ? 4 : 1;
+        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(inputSize * inputSize * 3 * bytesPerChannel);
+        inputBuffer.order(ByteOrder.nativeOrder());
+
+        int[] pixels = new int[inputSize * inputSize];
+        System.arraycopy(bitmap, 0, pixels, 0, pixels.length);
+
+        for (int pixel : pixels) {
+            if ("FLOAT32".equals(inputType)) {
+                inputBuffer.putFloat(((pixel >> 16) & 0xFF) / 255.0f);
+                inputBuffer.putFloat(((pixel >> 8) & 0xFF) / 255.0f);
+                inputBuffer.putFloat((pixel & 0xFF) / 255.0f);
+            } else {
+                inputBuffer.put((byte) ((pixel >> 16) & 0xFF));
+                inputBuffer.put((byte) ((pixel >> 8) & 0xFF));
+                inputBuffer.put((byte) (pixel & 0xFF));
+            }
+        }
+        return inputBuffer;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.ecovision.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Postprocesado de la salida: argmax con el número de clases actual y uno mayor
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScoresBenchmark {
+
+    @Param({"6", "1000"})
+    public int numClasses;
+
+    private float[] scores;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        scores = new float[numClasses];
+        for (int i = 0; i < numClasses; i++) {
+            scores[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public int topIndex() {
+        return Scores.argMax(scores);
+    }
+}
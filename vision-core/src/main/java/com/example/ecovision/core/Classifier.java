@@ -0,0 +1,20 @@
+package com.example.ecovision.core;
+
+import java.nio.ByteBuffer;
+
+// Backend de inferencia: recibe el tensor [1, N, N, 3] ya empaquetado por PixelPacker y devuelve una
+// puntuación por clase. En la app es el intérprete de TFLite; en la JVM, FakeClassifier.
+public interface Classifier {
+
+    int getInputSize();
+
+    boolean isFloatInput();
+
+    // Entrada INT8: el píxel llega desplazado a [-128, 127]
+    boolean isSignedInput();
+
+    int getNumClasses();
+
+    // Lee input desde la posición 0; el arreglo devuelto pertenece al llamador
+    float[] classify(ByteBuffer input);
+}
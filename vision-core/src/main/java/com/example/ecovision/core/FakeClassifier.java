@@ -0,0 +1,69 @@
+package com.example.ecovision.core;
+
+import java.nio.ByteBuffer;
+
+// Backend determinista para pruebas y reproducciones sin modelo: la clase ganadora y su confianza
+// salen de un hash del tensor de entrada, así que la misma imagen da siempre el mismo resultado.
+public class FakeClassifier implements Classifier {
+
+    private final int inputSize;
+    private final boolean floatInput;
+    private final int numClasses;
+
+    public FakeClassifier(int inputSize, boolean floatInput, int numClasses) {
+        if (numClasses < 2) {
+            throw new IllegalArgumentException("Se necesitan al menos 2 clases: " + numClasses);
+        }
+        this.inputSize = inputSize;
+        this.floatInput = floatInput;
+        this.numClasses = numClasses;
+    }
+
+    @Override
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    @Override
+    public boolean isFloatInput() {
+        return floatInput;
+    }
+
+    @Override
+    public boolean isSignedInput() {
+        return false;
+    }
+
+    @Override
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    @Override
+    public float[] classify(ByteBuffer input) {
+        // FNV-1a sobre todo el tensor; duplicate() no mueve la posición del buffer del llamador
+        ByteBuffer bytes = input.duplicate();
+        bytes.rewind();
+        int hash = 0x811C9DC5;
+        while (bytes.hasRemaining()) {
+            hash = (hash ^ (bytes.get() & 0xFF)) * 0x01000193;
+        }
+        // Mezcla final de MurmurHash3: FNV deja los bits bajos poco repartidos
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+
+        int winner = (hash >>> 1) % numClasses;
+        // Confianza en [1/n, 1): algunas imágenes quedan por debajo del umbral y salen dudosas
+        float floor = 1f / numClasses;
+        float confidence = floor + (1f - floor) * ((hash >>> 16) & 0xFF) / 256f;
+        float[] scores = new float[numClasses];
+        float rest = (1f - confidence) / (numClasses - 1);
+        for (int i = 0; i < numClasses; i++) {
+            scores[i] = i == winner ? confidence : rest;
+        }
+        return scores;
+    }
+}
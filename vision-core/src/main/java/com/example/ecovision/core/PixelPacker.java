@@ -0,0 +1,110 @@
+package com.example.ecovision.core;
+
+import java.nio.ByteBuffer;
+
+// Empaqueta píxeles ARGB en el tensor de entrada [1, N, N, 3], con redimensionado por vecino más cercano
+public class PixelPacker {
+
+    // Tabla de normalización [0,255] -> [0,1], mismos valores que dividir entre 255.0f
+    private static final float[] NORMALIZED = new float[256];
+
+    static {
+        for (int i = 0; i < NORMALIZED.length; i++) {
+            NORMALIZED[i] = i / 255.0f;
+        }
+    }
+
+    private final int inputSize;
+    private final boolean floatInput;
+    // INT8 recibe el píxel desplazado a [-128, 127]; invertir el bit alto equivale a restar 128
+    private final int byteMask;
+
+    // Índice de columna origen para cada columna destino (se recalcula si cambia el ancho)
+    private final int[] columnIndex;
+    private int lastSourceWidth = -1;
+    private final int[] identityIndex;
+
+    // Fila empaquetada UINT8, se copia al buffer con una sola llamada
+    private final byte[] rowBytes;
+
+    public PixelPacker(int inputSize, boolean floatInput, boolean signedInput) {
+        this.inputSize = inputSize;
+        this.floatInput = floatInput;
+        this.byteMask = signedInput ? 0x80 : 0;
+        this.columnIndex = new int[inputSize];
+        this.rowBytes = new byte[inputSize * 3];
+        this.identityIndex = new int[inputSize];
+        for (int x = 0; x < inputSize; x++) {
+            identityIndex[x] = x;
+        }
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public boolean isFloatInput() {
+        return floatInput;
+    }
+
+    // Bytes que ocupa una imagen empaquetada
+    public int getInputBytes() {
+        return inputSize * inputSize * 3 * (floatInput ? 4 : 1);
+    }
+
+    // Índices para filas que ya tienen exactamente inputSize columnas
+    public int[] getIdentityIndex() {
+        return identityIndex;
+    }
+
+    // Índices de columna para un origen de este ancho; el arreglo se reutiliza
+    public int[] columnIndexFor(int width) {
+        if (width != lastSourceWidth) {
+            for (int x = 0; x < inputSize; x++) {
+                columnIndex[x] = (int) ((long) x * width / inputSize);
+            }
+            lastSourceWidth = width;
+        }
+        return columnIndex;
+    }
+
+    public static int sourceRow(int y, int height, int inputSize) {
+        return (int) ((long) y * height / inputSize);
+    }
+
+    // Imagen completa ya en memoria; escribe desde la posición actual de out
+    public void pack(int[] pixels, int width, int height, ByteBuffer out) {
+        int[] columns = columnIndexFor(width);
+        for (int y = 0; y < inputSize; y++) {
+            packRow(pixels, sourceRow(y, height, inputSize) * width, columns, out);
+        }
+    }
+
+    public void packRow(int[] pixels, int offset, int[] columns, ByteBuffer out) {
+        if (floatInput) {
+            packFloatRow(pixels, offset, columns, out);
+        } else {
+            packByteRow(pixels, offset, columns, out);
+        }
+    }
+
+    private void packFloatRow(int[] pixels, int offset, int[] columns, ByteBuffer out) {
+        for (int x = 0; x < inputSize; x++) {
+            int pixel = pixels[offset + columns[x]];
+            out.putFloat(NORMALIZED[(pixel >> 16) & 0xFF]); // R
+            out.putFloat(NORMALIZED[(pixel >> 8) & 0xFF]);  // G
+            out.putFloat(NORMALIZED[pixel & 0xFF]);         // B
+        }
+    }
+
+    private void packByteRow(int[] pixels, int offset, int[] columns, ByteBuffer out) {
+        int i = 0;
+        for (int x = 0; x < inputSize; x++) {
+            int pixel = pixels[offset + columns[x]];
+            rowBytes[i++] = (byte) ((pixel >> 16) ^ byteMask); // R
+            rowBytes[i++] = (byte) ((pixel >> 8) ^ byteMask);  // G
+            rowBytes[i++] = (byte) (pixel ^ byteMask);         // B
+        }
+        out.put(rowBytes);
+    }
+}
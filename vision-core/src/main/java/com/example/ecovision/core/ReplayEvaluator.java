@@ -0,0 +1,188 @@
+package com.example.ecovision.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Reproduce capturas grabadas por el pipeline completo (empaquetado, inferencia y veredicto) con
+// cualquier Classifier, sin cámara ni dispositivo. Informa rendimiento, percentiles de latencia
+// y cuántas capturas terminaron en cada clase.
+public class ReplayEvaluator {
+
+    // Una captura ya decodificada a ARGB; leer el archivo queda a cargo de quien la entrega
+    // (ImageIO en la JVM, BitmapFactory en Android)
+    public static class Frame {
+        private final String name;
+        private final int[] pixels;
+        private final int width;
+        private final int height;
+
+        public Frame(String name, int[] pixels, int width, int height) {
+            if (pixels.length < width * height) {
+                throw new IllegalArgumentException("Faltan píxeles en " + name);
+            }
+            this.name = name;
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int[] getPixels() {
+            return pixels;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    public static class Report {
+        private final long elapsedNanos;
+        // Ordenadas de menor a mayor para los percentiles
+        private final long[] frameNanos;
+        private final long[] inferenceNanos;
+        private final int[] labelCounts;
+        private final int notSureCount;
+        // Nombre de la captura -> clase o ScorePostprocessor.NOT_SURE, en orden de reproducción
+        private final Map<String, Integer> verdicts;
+
+        Report(long elapsedNanos, long[] frameNanos, long[] inferenceNanos, int[] labelCounts,
+               int notSureCount, Map<String, Integer> verdicts) {
+            this.elapsedNanos = elapsedNanos;
+            this.frameNanos = frameNanos;
+            this.inferenceNanos = inferenceNanos;
+            this.labelCounts = labelCounts;
+            this.notSureCount = notSureCount;
+            this.verdicts = verdicts;
+        }
+
+        public int getFrameCount() {
+            return frameNanos.length;
+        }
+
+        // Capturas por segundo de reloj, incluido el tiempo de leer cada archivo
+        public float getThroughput() {
+            return elapsedNanos == 0 ? 0f : frameNanos.length * 1e9f / elapsedNanos;
+        }
+
+        // Latencia por captura (empaquetado + inferencia + veredicto), por rango más cercano
+        public float getFramePercentileMs(float percentile) {
+            return percentileMs(frameNanos, percentile);
+        }
+
+        public float getInferencePercentileMs(float percentile) {
+            return percentileMs(inferenceNanos, percentile);
+        }
+
+        public int getLabelCount(int index) {
+            return labelCounts[index];
+        }
+
+        public int getNotSureCount() {
+            return notSureCount;
+        }
+
+        public Map<String, Integer> getVerdicts() {
+            return verdicts;
+        }
+
+        // labels puede ser null; entonces se usa el índice de la clase
+        public String format(String[] labels) {
+            StringBuilder summary = new StringBuilder(String.format(Locale.US,
+                    "%d capturas, %.1f/s | por captura p50 %.2f p90 %.2f p99 %.2f ms"
+                            + " | inferencia p50 %.2f p99 %.2f ms",
+                    getFrameCount(), getThroughput(), getFramePercentileMs(50), getFramePercentileMs(90),
+                    getFramePercentileMs(99), getInferencePercentileMs(50), getInferencePercentileMs(99)));
+            for (int i = 0; i < labelCounts.length; i++) {
+                summary.append('\n').append(labels != null ? labels[i] : "clase " + i).append(": ")
+                        .append(labelCounts[i]);
+            }
+            summary.append("\ndudosas: ").append(notSureCount);
+            return summary.toString();
+        }
+
+        private static float percentileMs(long[] sorted, float percentile) {
+            if (sorted.length == 0) return 0f;
+            int rank = (int) Math.ceil(percentile / 100f * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6f;
+        }
+    }
+
+    private final Classifier classifier;
+    private final PixelPacker packer;
+    private final ScorePostprocessor postprocessor;
+    private final ByteBuffer inputBuffer;
+
+    public ReplayEvaluator(Classifier classifier, float minConfidence) {
+        this.classifier = classifier;
+        this.packer = new PixelPacker(classifier.getInputSize(), classifier.isFloatInput(),
+                classifier.isSignedInput());
+        this.postprocessor = new ScorePostprocessor(minConfidence);
+        // Mismo buffer que ImagePreprocessor: directo y en el orden nativo
+        this.inputBuffer = ByteBuffer.allocateDirect(packer.getInputBytes()).order(ByteOrder.nativeOrder());
+    }
+
+    // Las capturas se piden de una en una: una carpeta grande no tiene que caber en memoria
+    public Report run(Iterable<Frame> frames) {
+        int numClasses = classifier.getNumClasses();
+        int[] labelCounts = new int[numClasses];
+        int notSure = 0;
+        Map<String, Integer> verdicts = new LinkedHashMap<>();
+        long[] frameNanos = new long[16];
+        long[] inferenceNanos = new long[16];
+        int count = 0;
+
+        long start = System.nanoTime();
+        for (Iterator<Frame> it = frames.iterator(); it.hasNext(); ) {
+            Frame frame = it.next();
+            long frameStart = System.nanoTime();
+            inputBuffer.rewind();
+            packer.pack(frame.getPixels(), frame.getWidth(), frame.getHeight(), inputBuffer);
+            inputBuffer.rewind();
+
+            long inferenceStart = System.nanoTime();
+            float[] scores = classifier.classify(inputBuffer);
+            long inferenceEnd = System.nanoTime();
+            if (scores.length != numClasses) {
+                throw new IllegalStateException(frame.getName() + ": " + scores.length
+                        + " puntuaciones, se esperaban " + numClasses);
+            }
+
+            int verdict = postprocessor.decide(scores);
+            long frameEnd = System.nanoTime();
+            if (verdict == ScorePostprocessor.NOT_SURE) {
+                notSure++;
+            } else {
+                labelCounts[verdict]++;
+            }
+            verdicts.put(frame.getName(), verdict);
+
+            if (count == frameNanos.length) {
+                frameNanos = Arrays.copyOf(frameNanos, count * 2);
+                inferenceNanos = Arrays.copyOf(inferenceNanos, count * 2);
+            }
+            frameNanos[count] = frameEnd - frameStart;
+            inferenceNanos[count] = inferenceEnd - inferenceStart;
+            count++;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        frameNanos = Arrays.copyOf(frameNanos, count);
+        inferenceNanos = Arrays.copyOf(inferenceNanos, count);
+        Arrays.sort(frameNanos);
+        Arrays.sort(inferenceNanos);
+        return new Report(elapsed, frameNanos, inferenceNanos, labelCounts, notSure, verdicts);
+    }
+}
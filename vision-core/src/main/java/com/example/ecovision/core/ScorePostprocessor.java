@@ -0,0 +1,40 @@
+package com.example.ecovision.core;
+
+// Veredicto a partir de las puntuaciones: la mejor clase si alcanza la confianza mínima o
+// NOT_SURE, conservando las dos candidatas para explicar un resultado dudoso.
+// Lo comparten la pantalla de escaneo y ReplayEvaluator para que midan lo mismo.
+public class ScorePostprocessor {
+
+    public static final int NOT_SURE = -1;
+
+    private final TopKSelector topClasses = new TopKSelector(2);
+    private final float minConfidence;
+
+    public ScorePostprocessor(float minConfidence) {
+        this.minConfidence = minConfidence;
+    }
+
+    // Devuelve el índice de la clase o NOT_SURE; no asigna memoria
+    public int decide(float[] scores) {
+        topClasses.select(scores);
+        return getConfidence() >= minConfidence ? getBestIndex() : NOT_SURE;
+    }
+
+    // Mejor clase de la última decisión, aunque no haya alcanzado el umbral
+    public int getBestIndex() {
+        return topClasses.getIndex(0);
+    }
+
+    public float getConfidence() {
+        return topClasses.getScore(0);
+    }
+
+    // -1 si el modelo tiene una sola clase
+    public int getRunnerUpIndex() {
+        return topClasses.getCount() > 1 ? topClasses.getIndex(1) : -1;
+    }
+
+    public float getMinConfidence() {
+        return minConfidence;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.ecovision.core;
+
+// Media móvil exponencial de las puntuaciones entre frames consecutivos
+public class ScoreSmoother {
+
+    private final float alpha;
+    private float[] smoothed;
+    private boolean primed;
+
+    // alpha es el peso del frame nuevo: 1 no suaviza, valores bajos reaccionan más lento
+    public ScoreSmoother(float alpha) {
+        if (alpha <= 0f || alpha > 1f) {
+            throw new IllegalArgumentException("alpha fuera de (0, 1]: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    // Devuelve un arreglo interno que se reutiliza; copiarlo si debe sobrevivir al siguiente frame
+    public float[] update(float[] scores) {
+        if (smoothed == null || smoothed.length != scores.length) {
+            smoothed = new float[scores.length];
+            primed = false;
+        }
+        if (!primed) {
+            System.arraycopy(scores, 0, smoothed, 0, scores.length);
+            primed = true;
+        } else {
+            for (int i = 0; i < scores.length; i++) {
+                smoothed[i] += alpha * (scores[i] - smoothed[i]);
+            }
+        }
+        return smoothed;
+    }
+
+    public void reset() {
+        primed = false;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.ecovision.core;
+
+// Postprocesado de la salida del clasificador
+public final class Scores {
+
+    private Scores() {
+    }
+
+    // Índice de la clase con mayor puntuación; ante empate gana la primera
+    public static int argMax(float[] scores) {
+        int maxIndex = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[maxIndex]) maxIndex = i;
+        }
+        return maxIndex;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.ecovision.core;
+
+// Decide cuánto aliviar la inferencia a partir de la latencia reciente, el estado térmico y el
+// ahorro de batería. Niveles: 0 sin límite, 1 reducido, 2 mínimo. Sin dependencias de Android:
+// el estado térmico usa los mismos valores que PowerManager.THERMAL_STATUS_*.
+public class ThrottlePolicy {
+
+    public static final int LEVEL_FULL = 0;
+    public static final int LEVEL_REDUCED = 1;
+    public static final int LEVEL_MINIMAL = 2;
+
+    // PowerManager.THERMAL_STATUS_MODERATE y THERMAL_STATUS_SEVERE
+    static final int THERMAL_MODERATE = 2;
+    static final int THERMAL_SEVERE = 3;
+
+    // Por encima de budget * 1.25 se baja un nivel; por debajo de budget * 0.6 se sube uno
+    private static final float OVER_BUDGET = 1.25f;
+    private static final float UNDER_BUDGET = 0.6f;
+
+    private final float budgetMs;
+    private final float alpha;
+    private final long holdMs;
+
+    private float latencyEmaMs = -1f;
+    private int thermalStatus;
+    private boolean powerSave;
+    private int level = LEVEL_FULL;
+    // Nivel mínimo que imponen el calor o el ahorro de batería en la última evaluación
+    private int floor = LEVEL_FULL;
+    private long lastChangeMs = Long.MIN_VALUE / 2;
+    private String reason = "inicio";
+
+    // alpha: peso de cada medición nueva en la media; holdMs: tiempo mínimo entre cambios por latencia
+    public ThrottlePolicy(float budgetMs, float alpha, long holdMs) {
+        if (alpha <= 0f || alpha > 1f) {
+            throw new IllegalArgumentException("alpha fuera de (0, 1]: " + alpha);
+        }
+        this.budgetMs = budgetMs;
+        this.alpha = alpha;
+        this.holdMs = holdMs;
+    }
+
+    public void recordLatency(float latencyMs) {
+        latencyEmaMs = latencyEmaMs < 0 ? latencyMs : latencyEmaMs + alpha * (latencyMs - latencyEmaMs);
+    }
+
+    public void setThermalStatus(int thermalStatus) {
+        this.thermalStatus = thermalStatus;
+    }
+
+    public void setPowerSave(boolean powerSave) {
+        this.powerSave = powerSave;
+    }
+
+    // Aplica la política y devuelve el nivel vigente; compararlo con el anterior indica si cambió
+    public int evaluate(long nowMs) {
+        int floor = LEVEL_FULL;
+        String floorReason = null;
+        if (thermalStatus >= THERMAL_SEVERE) {
+            floor = LEVEL_MINIMAL;
+            floorReason = "térmico " + thermalStatus;
+        } else if (thermalStatus >= THERMAL_MODERATE) {
+            floor = LEVEL_REDUCED;
+            floorReason = "térmico " + thermalStatus;
+        }
+        if (powerSave && floor < LEVEL_REDUCED) {
+            floor = LEVEL_REDUCED;
+            floorReason = "ahorro de batería";
+        }
+        this.floor = floor;
+
+        // El calor y el ahorro de batería mandan de inmediato, sin esperar a la latencia
+        if (floor > level) {
+            return change(floor, floorReason, nowMs);
+        }
+        if (nowMs - lastChangeMs < holdMs || latencyEmaMs < 0) {
+            return level;
+        }
+        if (latencyEmaMs > budgetMs * OVER_BUDGET && level < LEVEL_MINIMAL) {
+            return change(level + 1, "latencia alta", nowMs);
+        }
+        if (latencyEmaMs < budgetMs * UNDER_BUDGET && level > floor) {
+            return change(level - 1, "latencia holgada", nowMs);
+        }
+        return level;
+    }
+
+    private int change(int next, String why, long nowMs) {
+        level = next;
+        reason = why;
+        lastChangeMs = nowMs;
+        // La latencia medida con el nivel anterior ya no sirve para decidir el siguiente
+        latencyEmaMs = -1f;
+        return level;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getFloor() {
+        return floor;
+    }
+
+    // Tope de hilos del intérprete, 0 sin tope. Solo lo fija el piso térmico o de batería: si la
+    // latencia quitara hilos, cada invocación tardaría más y la media ya no bajaría para recuperarlos.
+    public int getMaxThreads() {
+        switch (floor) {
+            case LEVEL_MINIMAL:
+                return 1;
+            case LEVEL_REDUCED:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    // Motivo del último cambio de nivel, para el registro
+    public String getReason() {
+        return reason;
+    }
+
+    // -1 si aún no hay mediciones con el nivel actual
+    public float getLatencyEmaMs() {
+        return latencyEmaMs;
+    }
+
+    public float getBudgetMs() {
+        return budgetMs;
+    }
+
+    public int getThermalStatus() {
+        return thermalStatus;
+    }
+
+    public boolean isPowerSave() {
+        return powerSave;
+    }
+}
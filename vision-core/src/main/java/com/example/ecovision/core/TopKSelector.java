@@ -0,0 +1,52 @@
+package com.example.ecovision.core;
+
+// Selecciona las K clases con mayor puntuación sin asignar memoria por llamada
+public class TopKSelector {
+
+    private final int k;
+    // Resultados ordenados de mayor a menor; se sobrescriben en cada select()
+    private final int[] indices;
+    private final float[] scores;
+    private int count;
+
+    public TopKSelector(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k debe ser al menos 1: " + k);
+        }
+        this.k = k;
+        this.indices = new int[k];
+        this.scores = new float[k];
+    }
+
+    // Inserción ordenada en un arreglo de K elementos: O(n·K), con K pequeño es una sola pasada
+    public int select(float[] input) {
+        count = 0;
+        for (int i = 0; i < input.length; i++) {
+            float score = input[i];
+            if (count == k && score <= scores[k - 1]) continue;
+
+            int position = count < k ? count++ : k - 1;
+            // Con empate se conserva primero el índice menor, igual que Scores.argMax
+            while (position > 0 && scores[position - 1] < score) {
+                scores[position] = scores[position - 1];
+                indices[position] = indices[position - 1];
+                position--;
+            }
+            scores[position] = score;
+            indices[position] = i;
+        }
+        return count;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getIndex(int rank) {
+        return indices[rank];
+    }
+
+    public float getScore(int rank) {
+        return scores[rank];
+    }
+}
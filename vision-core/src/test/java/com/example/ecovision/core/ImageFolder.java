@@ -0,0 +1,73 @@
+package com.example.ecovision.core;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import javax.imageio.ImageIO;
+
+// Capturas de una carpeta para ReplayEvaluator, leídas con ImageIO (solo JVM) una a una y en orden
+// alfabético. ImageIO no lee WebP; los archivos que no sabe decodificar se saltan.
+class ImageFolder implements Iterable<ReplayEvaluator.Frame> {
+
+    private final List<File> files = new ArrayList<>();
+
+    ImageFolder(File directory) {
+        File[] listed = directory.listFiles();
+        if (listed == null) {
+            throw new IllegalArgumentException("No es una carpeta: " + directory);
+        }
+        Arrays.sort(listed);
+        for (File file : listed) {
+            String name = file.getName().toLowerCase(Locale.ROOT);
+            if (file.isFile() && (name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg"))) {
+                files.add(file);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<ReplayEvaluator.Frame> iterator() {
+        return new Iterator<ReplayEvaluator.Frame>() {
+            private int next;
+            private ReplayEvaluator.Frame pending;
+
+            @Override
+            public boolean hasNext() {
+                while (pending == null && next < files.size()) {
+                    pending = read(files.get(next++));
+                }
+                return pending != null;
+            }
+
+            @Override
+            public ReplayEvaluator.Frame next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                ReplayEvaluator.Frame frame = pending;
+                pending = null;
+                return frame;
+            }
+        };
+    }
+
+    private static ReplayEvaluator.Frame read(File file) {
+        try {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) return null;
+            int width = image.getWidth();
+            int height = image.getHeight();
+            // getRGB entrega ARGB por filas, igual que Bitmap.getPixels
+            int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+            return new ReplayEvaluator.Frame(file.getName(), pixels, width, height);
+        } catch (IOException e) {
+            throw new UncheckedIOException(file.getName(), e);
+        }
+    }
+}
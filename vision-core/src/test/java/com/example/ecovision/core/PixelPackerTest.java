@@ -0,0 +1,48 @@
+package com.example.ecovision.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class PixelPackerTest {
+
+    @Test
+    public void packsNearestNeighbourInEveryInputType() {
+        // 4x4 con un valor distinto por píxel; a 2x2 se toman las columnas y filas 0 y 2
+        int[] pixels = new int[16];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | (i * 16 << 16) | (i << 8) | (255 - i);
+        }
+        int[] expected = {pixels[0], pixels[2], pixels[8], pixels[10]};
+
+        PixelPacker floatPacker = new PixelPacker(2, true, false);
+        ByteBuffer floats = ByteBuffer.allocate(floatPacker.getInputBytes()).order(ByteOrder.nativeOrder());
+        floatPacker.pack(pixels, 4, 4, floats);
+        floats.rewind();
+        for (int pixel : expected) {
+            assertEquals(((pixel >> 16) & 0xFF) / 255.0f, floats.getFloat(), 0f);
+            assertEquals(((pixel >> 8) & 0xFF) / 255.0f, floats.getFloat(), 0f);
+            assertEquals((pixel & 0xFF) / 255.0f, floats.getFloat(), 0f);
+        }
+
+        PixelPacker uint8Packer = new PixelPacker(2, false, false);
+        PixelPacker int8Packer = new PixelPacker(2, false, true);
+        ByteBuffer unsigned = ByteBuffer.allocate(uint8Packer.getInputBytes());
+        ByteBuffer signed = ByteBuffer.allocate(int8Packer.getInputBytes());
+        uint8Packer.pack(pixels, 4, 4, unsigned);
+        int8Packer.pack(pixels, 4, 4, signed);
+        for (int i = 0; i < unsigned.capacity(); i++) {
+            // INT8 es el mismo valor desplazado en -128
+            assertEquals((unsigned.get(i) & 0xFF) - 128, signed.get(i));
+        }
+        assertEquals((byte) ((expected[3] >> 16) & 0xFF), unsigned.get(9));
+    }
+
+    @Test
+    public void argMaxKeepsFirstOnTies() {
+        assertEquals(1, Scores.argMax(new float[]{0.1f, 0.4f, 0.4f, 0.1f}));
+    }
+}
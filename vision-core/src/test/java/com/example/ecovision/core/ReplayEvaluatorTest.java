@@ -0,0 +1,113 @@
+package com.example.ecovision.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReplayEvaluatorTest {
+
+    private static final int INPUT_SIZE = 32;
+    private static final int NUM_CLASSES = 4;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    // Carpeta de capturas con colores distintos; uno de los archivos no es una imagen
+    private File recordedFolder(int images) throws Exception {
+        File folder = temp.newFolder("capturas");
+        for (int i = 0; i < images; i++) {
+            BufferedImage image = new BufferedImage(48 + i, 40, BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, (i * 37 + x) << 16 | (y * 5) << 8 | (i * 11));
+                }
+            }
+            ImageIO.write(image, "png", new File(folder, String.format("captura-%02d.png", i)));
+        }
+        assertTrue(new File(folder, "notas.png").createNewFile());
+        return folder;
+    }
+
+    @Test
+    public void replaysFolderThroughFullPipelineAndReportsDistribution() throws Exception {
+        ImageFolder folder = new ImageFolder(recordedFolder(12));
+        ReplayEvaluator evaluator = new ReplayEvaluator(new FakeClassifier(INPUT_SIZE, false, NUM_CLASSES), 0.6f);
+
+        ReplayEvaluator.Report report = evaluator.run(folder);
+
+        // notas.png no se puede decodificar y se salta
+        assertEquals(12, report.getFrameCount());
+        int counted = report.getNotSureCount();
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            counted += report.getLabelCount(i);
+        }
+        assertEquals(12, counted);
+        assertTrue(report.getThroughput() > 0f);
+        assertTrue(report.getFramePercentileMs(50) <= report.getFramePercentileMs(99));
+        assertTrue(report.getInferencePercentileMs(99) <= report.getFramePercentileMs(100));
+        assertTrue(report.format(new String[]{"papel", "plástico", "vidrio", "metal"}).contains("dudosas: "));
+    }
+
+    @Test
+    public void verdictsAreReproducibleForEachInputType() throws Exception {
+        ImageFolder folder = new ImageFolder(recordedFolder(8));
+
+        Map<String, Integer> first = new ReplayEvaluator(
+                new FakeClassifier(INPUT_SIZE, false, NUM_CLASSES), 0.5f).run(folder).getVerdicts();
+        Map<String, Integer> again = new ReplayEvaluator(
+                new FakeClassifier(INPUT_SIZE, false, NUM_CLASSES), 0.5f).run(folder).getVerdicts();
+        assertEquals(first, again);
+        assertEquals(8, first.size());
+
+        // Con entrada FLOAT32 el tensor cambia, pero sigue siendo reproducible
+        Map<String, Integer> floats = new ReplayEvaluator(
+                new FakeClassifier(INPUT_SIZE, true, NUM_CLASSES), 0.5f).run(folder).getVerdicts();
+        assertEquals(floats, new ReplayEvaluator(
+                new FakeClassifier(INPUT_SIZE, true, NUM_CLASSES), 0.5f).run(folder).getVerdicts());
+    }
+
+    @Test
+    public void postprocessorKeepsCandidatesForDoubtfulResults() {
+        ScorePostprocessor postprocessor = new ScorePostprocessor(0.6f);
+        assertEquals(ScorePostprocessor.NOT_SURE, postprocessor.decide(new float[]{0.1f, 0.45f, 0.4f, 0.05f}));
+        assertEquals(1, postprocessor.getBestIndex());
+        assertEquals(2, postprocessor.getRunnerUpIndex());
+
+        assertEquals(0, postprocessor.decide(new float[]{0.7f, 0.1f, 0.1f, 0.1f}));
+        assertNotEquals(ScorePostprocessor.NOT_SURE, postprocessor.decide(new float[]{0.6f, 0.4f}));
+    }
+
+    // ./gradlew :vision-core:test -PreplayDir=/ruta/capturas reproduce capturas reales con el backend falso:
+    // mide empaquetado y veredicto, y deja el informe en build/replay/informe.txt para comparar entre cambios
+    @Test
+    public void replaysRecordedFolderFromProperty() throws Exception {
+        String directory = System.getProperty("replayDir");
+        Assume.assumeTrue(directory != null);
+        ImageFolder folder = new ImageFolder(new File(directory));
+        ReplayEvaluator.Report report = new ReplayEvaluator(new FakeClassifier(224, false, NUM_CLASSES), 0.6f)
+                .run(folder);
+        assertTrue(report.getFrameCount() > 0);
+
+        File output = new File(System.getProperty("replayReport", "build/replay/informe.txt"));
+        File parent = output.getAbsoluteFile().getParentFile();
+        assertTrue(parent.isDirectory() || parent.mkdirs());
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)) {
+            writer.write(report.format(null));
+        }
+    }
+}
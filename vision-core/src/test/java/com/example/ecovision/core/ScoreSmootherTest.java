@@ -0,0 +1,24 @@
+package com.example.ecovision.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ScoreSmootherTest {
+
+    @Test
+    public void startsFromFirstFrameAndReusesItsArray() {
+        ScoreSmoother smoother = new ScoreSmoother(0.5f);
+        float[] first = smoother.update(new float[]{1f, 0f});
+        assertEquals(1f, first[0], 0f);
+
+        float[] second = smoother.update(new float[]{0f, 1f});
+        assertSame(first, second);
+        assertEquals(0.5f, second[0], 1e-6f);
+        assertEquals(0.5f, second[1], 1e-6f);
+
+        smoother.reset();
+        assertEquals(0f, smoother.update(new float[]{0f, 1f})[0], 0f);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.ecovision.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ThrottlePolicyTest {
+
+    private static final long HOLD_MS = 10_000;
+
+    private static ThrottlePolicy policy() {
+        return new ThrottlePolicy(100f, 0.5f, HOLD_MS);
+    }
+
+    @Test
+    public void stepsDownWhenLatencyExceedsBudgetAndWaitsBetweenChanges() {
+        ThrottlePolicy policy = policy();
+        policy.recordLatency(200f);
+        assertEquals(ThrottlePolicy.LEVEL_REDUCED, policy.evaluate(0));
+        assertEquals("latencia alta", policy.getReason());
+
+        // Sigue lenta, pero aún no pasa el tiempo mínimo entre cambios
+        policy.recordLatency(200f);
+        assertEquals(ThrottlePolicy.LEVEL_REDUCED, policy.evaluate(HOLD_MS - 1));
+        assertEquals(ThrottlePolicy.LEVEL_MINIMAL, policy.evaluate(HOLD_MS));
+
+        // No hay nivel más bajo que el mínimo
+        policy.recordLatency(500f);
+        assertEquals(ThrottlePolicy.LEVEL_MINIMAL, policy.evaluate(3 * HOLD_MS));
+    }
+
+    @Test
+    public void recoversWhenLatencyHasHeadroom() {
+        ThrottlePolicy policy = policy();
+        policy.recordLatency(200f);
+        policy.evaluate(0);
+
+        // Entre 0.6 y 1.25 veces el presupuesto no se toca nada
+        policy.recordLatency(90f);
+        assertEquals(ThrottlePolicy.LEVEL_REDUCED, policy.evaluate(HOLD_MS));
+
+        policy.recordLatency(40f);
+        policy.recordLatency(40f);
+        assertEquals(ThrottlePolicy.LEVEL_FULL, policy.evaluate(2 * HOLD_MS));
+        assertEquals("latencia holgada", policy.getReason());
+    }
+
+    @Test
+    public void changingLevelDiscardsLatencyMeasuredBefore() {
+        ThrottlePolicy policy = policy();
+        policy.recordLatency(200f);
+        policy.evaluate(0);
+        assertEquals(-1f, policy.getLatencyEmaMs(), 0f);
+        // Sin mediciones nuevas no se decide nada
+        assertEquals(ThrottlePolicy.LEVEL_REDUCED, policy.evaluate(5 * HOLD_MS));
+    }
+
+    @Test
+    public void thermalStatusAndPowerSaveSetAFloorImmediately() {
+        ThrottlePolicy policy = policy();
+        policy.recordLatency(10f);
+        policy.setPowerSave(true);
+        assertEquals(ThrottlePolicy.LEVEL_REDUCED, policy.evaluate(0));
+        assertEquals("ahorro de batería", policy.getReason());
+
+        // El calor no espera al tiempo mínimo entre cambios
+        policy.setThermalStatus(ThrottlePolicy.THERMAL_SEVERE);
+        assertEquals(ThrottlePolicy.LEVEL_MINIMAL, policy.evaluate(1));
+
+        // Con latencia holgada no se sube por encima del piso térmico
+        policy.setThermalStatus(ThrottlePolicy.THERMAL_MODERATE);
+        policy.setPowerSave(false);
+        policy.recordLatency(10f);
+        assertEquals(ThrottlePolicy.LEVEL_REDUCED, policy.evaluate(HOLD_MS + 1));
+        policy.recordLatency(10f);
+        assertEquals(ThrottlePolicy.LEVEL_REDUCED, policy.evaluate(3 * HOLD_MS));
+
+        policy.setThermalStatus(0);
+        assertEquals(ThrottlePolicy.LEVEL_FULL, policy.evaluate(4 * HOLD_MS));
+    }
+
+    // Equipo simulado: con 4 hilos cada invocación tarda 50 ms y con menos hilos tarda más
+    private static float invokeMs(ThrottlePolicy policy) {
+        int threads = policy.getMaxThreads() == 0 ? 4 : policy.getMaxThreads();
+        return 50f * 4 / threads;
+    }
+
+    @Test
+    public void latencySpikeDoesNotCapThreadsAndPolicyRecovers() {
+        ThrottlePolicy policy = policy();
+        long now = 0;
+        // Otra app ocupa la CPU: la latencia se dispara y se baja hasta el nivel mínimo
+        for (int i = 0; i < 2; i++) {
+            policy.recordLatency(250f);
+            policy.evaluate(now);
+            now += HOLD_MS;
+        }
+        assertEquals(ThrottlePolicy.LEVEL_MINIMAL, policy.getLevel());
+        assertEquals(0, policy.getMaxThreads());
+
+        // Pasado el pico, la latencia vuelve a depender solo de los hilos, que no se tocaron
+        for (int i = 0; i < 4; i++) {
+            policy.recordLatency(invokeMs(policy));
+            policy.evaluate(now);
+            now += HOLD_MS;
+        }
+        assertEquals(ThrottlePolicy.LEVEL_FULL, policy.getLevel());
+    }
+
+    @Test
+    public void onlyThermalOrPowerSaveFloorCapsThreads() {
+        ThrottlePolicy policy = policy();
+        policy.setThermalStatus(ThrottlePolicy.THERMAL_SEVERE);
+        policy.evaluate(0);
+        assertEquals(1, policy.getMaxThreads());
+
+        // Un hilo hace que cada invocación supere el presupuesto, pero no baja más ni se queda así
+        policy.recordLatency(invokeMs(policy));
+        assertEquals(ThrottlePolicy.LEVEL_MINIMAL, policy.evaluate(HOLD_MS));
+
+        policy.setThermalStatus(0);
+        policy.setPowerSave(true);
+        policy.evaluate(2 * HOLD_MS);
+        assertEquals(2, policy.getMaxThreads());
+
+        // Al salir del ahorro se recuperan los hilos de inmediato; la media con un hilo se diluye
+        // y la latencia con todos los hilos permite volver al nivel completo
+        policy.setPowerSave(false);
+        policy.evaluate(3 * HOLD_MS);
+        assertEquals(0, policy.getMaxThreads());
+        long now = 4 * HOLD_MS;
+        for (int i = 0; i < 6; i++) {
+            policy.recordLatency(invokeMs(policy));
+            policy.evaluate(now);
+            now += HOLD_MS;
+        }
+        assertEquals(ThrottlePolicy.LEVEL_FULL, policy.getLevel());
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ecovision.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TopKSelectorTest {
+
+    @Test
+    public void selectsHighestScoresInOrderAndMatchesArgMax() {
+        TopKSelector selector = new TopKSelector(3);
+        float[] scores = {0.05f, 0.30f, 0.10f, 0.30f, 0.25f};
+
+        assertEquals(3, selector.select(scores));
+        assertEquals(1, selector.getIndex(0));
+        assertEquals(3, selector.getIndex(1));
+        assertEquals(4, selector.getIndex(2));
+        assertEquals(0.25f, selector.getScore(2), 0f);
+        assertEquals(Scores.argMax(scores), selector.getIndex(0));
+
+        // Menos clases que K
+        assertEquals(2, selector.select(new float[]{0.2f, 0.8f}));
+        assertEquals(1, selector.getIndex(0));
+    }
+}